@@ -1,5 +1,6 @@
 package me.yokeyword.sample.demo_flow.base;
 
+import android.animation.Animator;
 import android.app.Activity;
 import android.content.Intent;
 import android.os.Bundle;
@@ -55,6 +56,11 @@ public class MySupportFragment extends Fragment implements ISupportFragment {
         return mDelegate.onCreateAnimation(transit, enter, nextAnim);
     }
 
+    @Override
+    public Animator onCreateAnimator(int transit, boolean enter, int nextAnim) {
+        return mDelegate.onCreateAnimator(transit, enter, nextAnim);
+    }
+
     @Override
     public void onActivityCreated(@Nullable Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
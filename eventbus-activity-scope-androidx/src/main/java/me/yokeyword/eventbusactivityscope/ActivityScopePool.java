@@ -0,0 +1,98 @@
+package me.yokeyword.eventbusactivityscope;
+
+import android.app.Activity;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Weakly keyed pool of the activity-scope EventBus.
+ * <p>
+ * The scope is released in onActivityDestroyed(): it's removed, and the subscribers which haven't
+ * unregistered are unregistered. If the callback is missed, the scope is removed after the Activity has been
+ * garbage collected, which only happens if the subscribers(e.g. the Fragments) have unregistered: a registered
+ * subscriber references the Activity from the value, so the weak key is never cleared.
+ */
+class ActivityScopePool {
+    private final Map<ActivityKey, EventBusActivityScope.LazyEventBusInstance> mPool = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Activity> mQueue = new ReferenceQueue<>();
+
+    void put(Activity activity, EventBusActivityScope.LazyEventBusInstance instance) {
+        expungeStaleEntries();
+        mPool.put(new ActivityKey(activity, mQueue), instance);
+    }
+
+    EventBusActivityScope.LazyEventBusInstance get(Activity activity) {
+        expungeStaleEntries();
+        return mPool.get(new ActivityKey(activity, null));
+    }
+
+    boolean containsKey(Activity activity) {
+        return mPool.containsKey(new ActivityKey(activity, null));
+    }
+
+    EventBusActivityScope.LazyEventBusInstance remove(Activity activity) {
+        expungeStaleEntries();
+        return mPool.remove(new ActivityKey(activity, null));
+    }
+
+    int size() {
+        expungeStaleEntries();
+        return mPool.size();
+    }
+
+    List<EventBusScopeMetrics.ScopeRecord> getScopeRecords() {
+        expungeStaleEntries();
+        List<EventBusScopeMetrics.ScopeRecord> records = new ArrayList<>(mPool.size());
+        for (Map.Entry<ActivityKey, EventBusActivityScope.LazyEventBusInstance> entry : mPool.entrySet()) {
+            Activity activity = entry.getKey().get();
+            if (activity == null) continue;
+
+            EventBusActivityScope.LazyEventBusInstance instance = entry.getValue();
+            records.add(new EventBusScopeMetrics.ScopeRecord(activity.getClass().getName(),
+                    instance.getSubscriberCount(), instance.getPostedEventCount()));
+        }
+        return records;
+    }
+
+    private void expungeStaleEntries() {
+        Reference<? extends Activity> reference;
+        while ((reference = mQueue.poll()) != null) {
+            EventBusActivityScope.LazyEventBusInstance instance = mPool.remove(reference);
+            if (instance != null) {
+                instance.release();
+            }
+        }
+    }
+
+    /**
+     * Identity key of the Activity.
+     */
+    private static class ActivityKey extends WeakReference<Activity> {
+        private final int hash;
+
+        ActivityKey(Activity activity, ReferenceQueue<Activity> queue) {
+            super(activity, queue);
+            hash = System.identityHashCode(activity);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) return true;
+            if (!(obj instanceof ActivityKey)) return false;
+
+            Activity activity = get();
+            return activity != null && activity == ((ActivityKey) obj).get();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package me.yokeyword.eventbusactivityscope;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import org.greenrobot.eventbus.EventBus;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collect the events posted within one frame, and deliver only the latest(or merged) one of each key
+ * on the next frame.
+ */
+class ConflatingPoster {
+    private static final long FRAME_TIME = 16L;
+
+    private final Map<Object, Object> mPendingEvents = new LinkedHashMap<>();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final EventBus mEventBus;
+    private boolean mScheduled;
+    private Object mFrameCallback;
+
+    private final Runnable mScheduleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            scheduleFrame();
+        }
+    };
+
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchPendingEvents();
+        }
+    };
+
+    ConflatingPoster(EventBus eventBus) {
+        this.mEventBus = eventBus;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> void post(Object key, T event, EventMerger<T> merger) {
+        synchronized (mPendingEvents) {
+            Object pending = mPendingEvents.remove(key);
+            if (pending != null && merger != null) {
+                event = merger.merge((T) pending, event);
+            }
+            // Re-insert, so the events are delivered in the order of their latest post.
+            mPendingEvents.put(key, event);
+
+            if (mScheduled) return;
+            mScheduled = true;
+        }
+
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            scheduleFrame();
+        } else {
+            mMainHandler.post(mScheduleRunnable);
+        }
+    }
+
+    /**
+     * Drop the pending events, called when the scope is destroyed.
+     */
+    void cancel() {
+        synchronized (mPendingEvents) {
+            mPendingEvents.clear();
+        }
+    }
+
+    private void scheduleFrame() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().postFrameCallback(getFrameCallback());
+        } else {
+            mMainHandler.postDelayed(mDispatchRunnable, FRAME_TIME);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private Choreographer.FrameCallback getFrameCallback() {
+        if (mFrameCallback == null) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    dispatchPendingEvents();
+                }
+            };
+        }
+        return (Choreographer.FrameCallback) mFrameCallback;
+    }
+
+    private void dispatchPendingEvents() {
+        List<Object> events;
+        synchronized (mPendingEvents) {
+            mScheduled = false;
+            if (mPendingEvents.isEmpty()) return;
+            events = new ArrayList<>(mPendingEvents.values());
+            mPendingEvents.clear();
+        }
+
+        for (Object event : events) {
+            mEventBus.post(event);
+        }
+    }
+}
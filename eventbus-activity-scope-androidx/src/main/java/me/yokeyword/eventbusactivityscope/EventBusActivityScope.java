@@ -10,9 +10,8 @@ import android.util.Log;
 
 import org.greenrobot.eventbus.EventBus;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Activity-scope EventBus.
@@ -21,7 +20,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class EventBusActivityScope {
     private static final String TAG = EventBusActivityScope.class.getSimpleName();
-    private static final Map<Activity, LazyEventBusInstance> sActivityEventBusScopePool = new ConcurrentHashMap<>();
+    private static final ActivityScopePool sActivityEventBusScopePool = new ActivityScopePool();
+    private static final AtomicLong sStaleLookups = new AtomicLong();
     private static AtomicBoolean sInitialized = new AtomicBoolean(false);
     private static volatile EventBus sInvalidEventBus;
 
@@ -66,7 +66,10 @@ public class EventBusActivityScope {
                         mainHandler.post(new Runnable() { // Make sure Fragment's onDestroy() has been called.
                             @Override
                             public void run() {
-                                sActivityEventBusScopePool.remove(activity);
+                                LazyEventBusInstance lazyEventBusInstance = sActivityEventBusScopePool.remove(activity);
+                                if (lazyEventBusInstance != null) {
+                                    lazyEventBusInstance.release();
+                                }
                             }
                         });
                     }
@@ -75,10 +78,14 @@ public class EventBusActivityScope {
 
     /**
      * Get the activity-scope EventBus instance
+     * <p>
+     * The subscribers should unregister in their onDestroy(), the ones left are unregistered when the
+     * Activity is destroyed.
      */
     public static EventBus getDefault(Activity activity) {
         if (activity == null) {
             Log.e(TAG, "Can't find the Activity, the Activity is null!");
+            sStaleLookups.incrementAndGet();
             return invalidEventBus();
         }
 
@@ -86,12 +93,92 @@ public class EventBusActivityScope {
 
         if (lazyEventBusInstance == null) {
             Log.e(TAG, "Can't find the Activity, it has been removed!");
+            sStaleLookups.incrementAndGet();
             return invalidEventBus();
         }
 
         return lazyEventBusInstance.getInstance();
     }
 
+    /**
+     * Post the event in conflating mode: the events of the same type posted within one frame are
+     * conflated, only the latest one reaches the subscribers on the next frame.
+     * <p>
+     * Suitable for high-frequency events, such as scroll position or download progress.
+     *
+     * @param event Conflated by its class, must not be null.
+     * @throws IllegalArgumentException if the event is null.
+     */
+    public static void postConflated(Activity activity, Object event) {
+        if (event == null) {
+            throw new IllegalArgumentException("The conflated event can't be null!");
+        }
+        postConflated(activity, event.getClass(), event, null);
+    }
+
+    /**
+     * Post the event in conflating mode: the events of the same key posted within one frame are
+     * conflated, and delivered on the next frame.
+     *
+     * @param key    Events with the equal key are conflated.
+     * @param event  Must not be null.
+     * @param merger Merge the pending event with the latest one, null means the latest one wins.
+     * @throws IllegalArgumentException if the event is null.
+     */
+    public static <T> void postConflated(Activity activity, Object key, T event, EventMerger<T> merger) {
+        if (event == null) {
+            throw new IllegalArgumentException("The conflated event can't be null!");
+        }
+        if (activity == null) {
+            Log.e(TAG, "Can't find the Activity, the Activity is null!");
+            sStaleLookups.incrementAndGet();
+            invalidEventBus().post(event);
+            return;
+        }
+
+        LazyEventBusInstance lazyEventBusInstance = sActivityEventBusScopePool.get(activity);
+
+        if (lazyEventBusInstance == null) {
+            Log.e(TAG, "Can't find the Activity, it has been removed!");
+            sStaleLookups.incrementAndGet();
+            invalidEventBus().post(event);
+            return;
+        }
+
+        lazyEventBusInstance.getConflatingPoster().post(key, event, merger);
+    }
+
+    /**
+     * Cap the sticky events of the activity-scope EventBus, the least recently used sticky events
+     * are evicted when the cap is exceeded.
+     *
+     * @param cap null to remove the cap.
+     */
+    public static void setStickyEventCap(Activity activity, StickyEventCap cap) {
+        if (activity == null) {
+            Log.e(TAG, "Can't find the Activity, the Activity is null!");
+            return;
+        }
+
+        LazyEventBusInstance lazyEventBusInstance = sActivityEventBusScopePool.get(activity);
+
+        if (lazyEventBusInstance == null) {
+            Log.e(TAG, "Can't find the Activity, it has been removed!");
+            return;
+        }
+
+        lazyEventBusInstance.getScopeEventBus().setStickyEventCap(cap);
+    }
+
+    /**
+     * Get the metrics of the activity-scope EventBus pool: live scopes, subscribers and posted events
+     * per scope, and the stale lookups which fell back to the invalid EventBus.
+     */
+    public static EventBusScopeMetrics getMetrics() {
+        return new EventBusScopeMetrics(sActivityEventBusScopePool.size(), sStaleLookups.get(),
+                sActivityEventBusScopePool.getScopeRecords());
+    }
+
     private static EventBus invalidEventBus() {
         if (sInvalidEventBus == null) {
             synchronized (EventBusActivityScope.class) {
@@ -105,17 +192,57 @@ public class EventBusActivityScope {
     }
 
     static class LazyEventBusInstance {
-        private volatile EventBus eventBus;
+        private volatile ScopeEventBus eventBus;
+        private volatile ConflatingPoster conflatingPoster;
 
         EventBus getInstance() {
+            return getScopeEventBus();
+        }
+
+        ScopeEventBus getScopeEventBus() {
             if (eventBus == null) {
                 synchronized (this) {
                     if (eventBus == null) {
-                        eventBus = new EventBus();
+                        eventBus = new ScopeEventBus();
                     }
                 }
             }
             return eventBus;
         }
+
+        ConflatingPoster getConflatingPoster() {
+            if (conflatingPoster == null) {
+                synchronized (this) {
+                    if (conflatingPoster == null) {
+                        conflatingPoster = new ConflatingPoster(getInstance());
+                    }
+                }
+            }
+            return conflatingPoster;
+        }
+
+        int getSubscriberCount() {
+            ScopeEventBus bus = eventBus;
+            return bus == null ? 0 : bus.getSubscriberCount();
+        }
+
+        long getPostedEventCount() {
+            ScopeEventBus bus = eventBus;
+            return bus == null ? 0 : bus.getPostedEventCount();
+        }
+
+        /**
+         * The Activity is destroyed: drop the pending events, and unregister the subscribers left, so the
+         * scope doesn't keep the Activity alive through them.
+         */
+        void release() {
+            if (conflatingPoster != null) {
+                conflatingPoster.cancel();
+            }
+            ScopeEventBus bus = eventBus;
+            if (bus != null) {
+                bus.unregisterAll();
+            }
+        }
     }
 }
@@ -0,0 +1,52 @@
+package me.yokeyword.eventbusactivityscope;
+
+import java.util.List;
+
+/**
+ * Snapshot of the activity-scope EventBus pool, to spot leaks and event storms.
+ *
+ * @see EventBusActivityScope#getMetrics()
+ */
+public final class EventBusScopeMetrics {
+    /**
+     * The count of the live activity scopes.
+     */
+    public final int liveScopes;
+    /**
+     * The count of lookups which fell back to the invalid EventBus, because the Activity was null
+     * or its scope had been removed.
+     */
+    public final long staleLookups;
+    public final List<ScopeRecord> scopes;
+
+    EventBusScopeMetrics(int liveScopes, long staleLookups, List<ScopeRecord> scopes) {
+        this.liveScopes = liveScopes;
+        this.staleLookups = staleLookups;
+        this.scopes = scopes;
+    }
+
+    @Override
+    public String toString() {
+        return "EventBusScopeMetrics{liveScopes=" + liveScopes + ", staleLookups=" + staleLookups + ", scopes=" + scopes + "}";
+    }
+
+    public static final class ScopeRecord {
+        public final String activityName;
+        /**
+         * -1 if the count is unavailable.
+         */
+        public final int subscribers;
+        public final long postedEvents;
+
+        ScopeRecord(String activityName, int subscribers, long postedEvents) {
+            this.activityName = activityName;
+            this.subscribers = subscribers;
+            this.postedEvents = postedEvents;
+        }
+
+        @Override
+        public String toString() {
+            return activityName + "{subscribers=" + subscribers + ", postedEvents=" + postedEvents + "}";
+        }
+    }
+}
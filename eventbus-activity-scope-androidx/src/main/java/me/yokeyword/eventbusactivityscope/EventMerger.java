@@ -0,0 +1,13 @@
+package me.yokeyword.eventbusactivityscope;
+
+/**
+ * Merge the conflated events which posted within one frame.
+ */
+public interface EventMerger<T> {
+    /**
+     * @param pending The event waiting for the next frame.
+     * @param latest  The event just posted.
+     * @return The event which will be delivered on the next frame.
+     */
+    T merge(T pending, T latest);
+}
@@ -0,0 +1,244 @@
+package me.yokeyword.eventbusactivityscope;
+
+import org.greenrobot.eventbus.EventBus;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * EventBus of one Activity scope, which counts its posted events, and caps its sticky events.
+ */
+class ScopeEventBus extends EventBus {
+    private static Field sTypesBySubscriberField;
+    private static Field sStickyEventsField;
+
+    static {
+        try {
+            sTypesBySubscriberField = EventBus.class.getDeclaredField("typesBySubscriber");
+            sTypesBySubscriberField.setAccessible(true);
+        } catch (Exception ignored) {
+            // Unknown EventBus version, the subscriber count is unavailable.
+        }
+        try {
+            sStickyEventsField = EventBus.class.getDeclaredField("stickyEvents");
+            sStickyEventsField.setAccessible(true);
+        } catch (Exception ignored) {
+            // Unknown EventBus version, the sticky events posted before the cap are not tracked.
+        }
+    }
+
+    private final AtomicLong mPostedEventCount = new AtomicLong();
+    // Access-ordered: the eldest entry is the least recently used sticky event type.
+    private final LinkedHashMap<Class<?>, Long> mStickySizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long mStickyBytes;
+    private volatile StickyEventCap mStickyEventCap;
+
+    @Override
+    public void post(Object event) {
+        mPostedEventCount.incrementAndGet();
+        super.post(event);
+    }
+
+    @Override
+    public void postSticky(Object event) {
+        StickyEventCap cap = mStickyEventCap;
+        if (cap == null) {
+            super.postSticky(event);
+            return;
+        }
+
+        long size = cap.sizeEstimator == null ? 0 : cap.sizeEstimator.sizeOf(event);
+        List<Object> evictedEvents;
+        boolean stored;
+        // Stored, tracked and trimmed under one lock: a concurrent trim can't evict the event just posted.
+        synchronized (mStickySizes) {
+            stored = putStickyEvent(event);
+            Long previous = mStickySizes.put(event.getClass(), size);
+            mStickyBytes += size - (previous == null ? 0 : previous);
+            evictedEvents = trimStickyEventsLocked(cap);
+        }
+        // The subscribers are called outside the lock, as the eviction listener.
+        if (stored) {
+            post(event);
+        } else {
+            super.postSticky(event);
+        }
+        notifyEvicted(cap, evictedEvents);
+    }
+
+    @Override
+    public <T> T getStickyEvent(Class<T> eventType) {
+        if (mStickyEventCap != null) {
+            synchronized (mStickySizes) {
+                mStickySizes.get(eventType); // Touch
+            }
+        }
+        return super.getStickyEvent(eventType);
+    }
+
+    @Override
+    public <T> T removeStickyEvent(Class<T> eventType) {
+        synchronized (mStickySizes) {
+            untrackStickyEvent(eventType);
+            return super.removeStickyEvent(eventType);
+        }
+    }
+
+    @Override
+    public boolean removeStickyEvent(Object event) {
+        synchronized (mStickySizes) {
+            boolean removed = super.removeStickyEvent(event);
+            if (removed) {
+                untrackStickyEvent(event.getClass());
+            }
+            return removed;
+        }
+    }
+
+    @Override
+    public void removeAllStickyEvents() {
+        synchronized (mStickySizes) {
+            mStickySizes.clear();
+            mStickyBytes = 0;
+            super.removeAllStickyEvents();
+        }
+    }
+
+    void setStickyEventCap(StickyEventCap cap) {
+        mStickyEventCap = cap;
+        synchronized (mStickySizes) {
+            mStickySizes.clear();
+            mStickyBytes = 0;
+        }
+        if (cap == null) return;
+
+        // Sticky events posted before the cap are tracked as the least recently used ones.
+        List<Object> evictedEvents;
+        synchronized (mStickySizes) {
+            for (Map.Entry<Class<?>, Object> entry : getStickyEvents().entrySet()) {
+                long size = cap.sizeEstimator == null ? 0 : cap.sizeEstimator.sizeOf(entry.getValue());
+                mStickySizes.put(entry.getKey(), size);
+                mStickyBytes += size;
+            }
+            evictedEvents = trimStickyEventsLocked(cap);
+        }
+        notifyEvicted(cap, evictedEvents);
+    }
+
+    /**
+     * Evict the least recently used sticky events over the cap, the caller holds the lock of mStickySizes.
+     *
+     * @return The evicted events, null if none.
+     */
+    private List<Object> trimStickyEventsLocked(StickyEventCap cap) {
+        List<Object> evictedEvents = null;
+        Iterator<Map.Entry<Class<?>, Long>> iterator = mStickySizes.entrySet().iterator();
+        while ((mStickySizes.size() > cap.maxCount || mStickyBytes > cap.maxBytes) && iterator.hasNext()) {
+            Map.Entry<Class<?>, Long> eldest = iterator.next();
+            iterator.remove();
+            mStickyBytes -= eldest.getValue();
+            Object evicted = super.removeStickyEvent(eldest.getKey());
+            if (evicted != null) {
+                if (evictedEvents == null) {
+                    evictedEvents = new ArrayList<>();
+                }
+                evictedEvents.add(evicted);
+            }
+        }
+        return evictedEvents;
+    }
+
+    private static void notifyEvicted(StickyEventCap cap, List<Object> evictedEvents) {
+        if (evictedEvents == null || cap.evictionListener == null) return;
+
+        for (Object evicted : evictedEvents) {
+            cap.evictionListener.onStickyEventEvicted(evicted);
+        }
+    }
+
+    private void untrackStickyEvent(Class<?> eventType) {
+        synchronized (mStickySizes) {
+            Long size = mStickySizes.remove(eventType);
+            if (size != null) {
+                mStickyBytes -= size;
+            }
+        }
+    }
+
+    /**
+     * Stores the sticky event as EventBus#postSticky() does, without delivering it.
+     *
+     * @return false if unavailable(unknown EventBus version), postSticky() stores it then.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean putStickyEvent(Object event) {
+        if (sStickyEventsField == null) return false;
+        try {
+            Map<Class<?>, Object> stickyEvents = (Map<Class<?>, Object>) sStickyEventsField.get(this);
+            synchronized (stickyEvents) {
+                stickyEvents.put(event.getClass(), event);
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Class<?>, Object> getStickyEvents() {
+        if (sStickyEventsField == null) return new LinkedHashMap<>();
+        try {
+            Map<Class<?>, Object> stickyEvents = (Map<Class<?>, Object>) sStickyEventsField.get(this);
+            synchronized (stickyEvents) {
+                return new LinkedHashMap<>(stickyEvents);
+            }
+        } catch (Exception e) {
+            return new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Unregister all the subscribers, and remove the sticky events.
+     */
+    void unregisterAll() {
+        if (sTypesBySubscriberField != null) {
+            List<Object> subscribers;
+            try {
+                Map<?, ?> typesBySubscriber = (Map<?, ?>) sTypesBySubscriberField.get(this);
+                synchronized (this) {
+                    subscribers = new ArrayList<Object>(typesBySubscriber.keySet());
+                }
+            } catch (Exception e) {
+                subscribers = new ArrayList<>();
+            }
+            for (Object subscriber : subscribers) {
+                unregister(subscriber);
+            }
+        }
+        removeAllStickyEvents();
+    }
+
+    long getPostedEventCount() {
+        return mPostedEventCount.get();
+    }
+
+    /**
+     * @return The count of the registered subscribers, -1 if unavailable.
+     */
+    int getSubscriberCount() {
+        if (sTypesBySubscriberField == null) return -1;
+        try {
+            Map<?, ?> typesBySubscriber = (Map<?, ?>) sTypesBySubscriberField.get(this);
+            synchronized (this) {
+                return typesBySubscriber.size();
+            }
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package me.yokeyword.eventbusactivityscope;
+
+/**
+ * The cap of the sticky events kept by one activity-scope EventBus.
+ * When the cap is exceeded, the least recently used sticky events are evicted.
+ *
+ * @see EventBusActivityScope#setStickyEventCap(android.app.Activity, StickyEventCap)
+ */
+public final class StickyEventCap {
+    final int maxCount;
+    final long maxBytes;
+    final SizeEstimator sizeEstimator;
+    final EvictionListener evictionListener;
+
+    StickyEventCap(Builder builder) {
+        maxCount = builder.maxCount;
+        maxBytes = builder.maxBytes;
+        sizeEstimator = builder.sizeEstimator;
+        evictionListener = builder.evictionListener;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public interface SizeEstimator {
+        /**
+         * @return The estimated bytes of the sticky event.
+         */
+        long sizeOf(Object event);
+    }
+
+    public interface EvictionListener {
+        void onStickyEventEvicted(Object event);
+    }
+
+    public static class Builder {
+        private int maxCount = Integer.MAX_VALUE;
+        private long maxBytes = Long.MAX_VALUE;
+        private SizeEstimator sizeEstimator;
+        private EvictionListener evictionListener;
+
+        /**
+         * The max count of the sticky events.
+         */
+        public Builder maxCount(int maxCount) {
+            this.maxCount = maxCount;
+            return this;
+        }
+
+        /**
+         * The max estimated bytes of the sticky events.
+         */
+        public Builder maxBytes(long maxBytes, SizeEstimator sizeEstimator) {
+            this.maxBytes = maxBytes;
+            this.sizeEstimator = sizeEstimator;
+            return this;
+        }
+
+        /**
+         * Called after a sticky event has been evicted.
+         */
+        public Builder evictionListener(EvictionListener evictionListener) {
+            this.evictionListener = evictionListener;
+            return this;
+        }
+
+        public StickyEventCap build() {
+            if (maxBytes != Long.MAX_VALUE && sizeEstimator == null) {
+                throw new IllegalArgumentException("maxBytes requires a SizeEstimator!");
+            }
+            return new StickyEventCap(this);
+        }
+    }
+}
@@ -1,11 +1,19 @@
 package me.yokeyword.fragmentation;
 
 
+import android.app.ActivityManager;
+import android.content.Context;
+
+import java.io.File;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
 import androidx.annotation.IntDef;
+import androidx.core.app.ActivityManagerCompat;
+import me.yokeyword.fragmentation.helper.ActionMetricsListener;
 import me.yokeyword.fragmentation.helper.ExceptionHandler;
+import me.yokeyword.fragmentation.helper.PrewarmLayoutProvider;
+import me.yokeyword.fragmentation.helper.internal.StartupPreloadList;
 
 /**
  * Created by YoKey on 17/2/5.
@@ -24,11 +32,36 @@ public class Fragmentation {
      */
     public static final int BUBBLE = 2;
 
+    /**
+     * Use the low-RAM profile if ActivityManager.isLowRamDevice() or the memory class is below the threshold.
+     */
+    public static final int LOW_RAM_AUTO = 0;
+    public static final int LOW_RAM_ON = 1;
+    public static final int LOW_RAM_OFF = 2;
+
+    private static final int DEFAULT_LOW_RAM_MEMORY_CLASS = 96;
+
     static volatile Fragmentation INSTANCE;
 
     private boolean debug;
     private int mode = BUBBLE;
     private ExceptionHandler handler;
+    private ActionMetricsListener actionMetricsListener;
+    private boolean trace;
+    private long actionBudget;
+    private boolean profileLifecycle;
+    private File navigationTraceFile;
+    private boolean immediateActions;
+    private boolean adaptiveAnimation;
+    private int lowRamProfile;
+    private int lowRamMemoryClass;
+    private volatile Boolean lowRam;
+    private int fragmentPoolSize;
+    private boolean predictivePrewarm;
+    private PrewarmLayoutProvider prewarmLayoutProvider;
+    private long preloadRecordTime;
+    private boolean startupPreload;
+    private boolean lazyRestore;
 
     Fragmentation(FragmentationBuilder builder) {
         debug = builder.debug;
@@ -38,6 +71,21 @@ public class Fragmentation {
             mode = NONE;
         }
         handler = builder.handler;
+        actionMetricsListener = builder.actionMetricsListener;
+        trace = builder.trace;
+        actionBudget = builder.actionBudget;
+        profileLifecycle = builder.profileLifecycle;
+        navigationTraceFile = builder.navigationTraceFile;
+        immediateActions = builder.immediateActions;
+        adaptiveAnimation = builder.adaptiveAnimation;
+        lowRamProfile = builder.lowRamProfile;
+        lowRamMemoryClass = builder.lowRamMemoryClass;
+        fragmentPoolSize = builder.fragmentPoolSize;
+        predictivePrewarm = builder.predictivePrewarm;
+        prewarmLayoutProvider = builder.prewarmLayoutProvider;
+        preloadRecordTime = builder.preloadRecordTime;
+        startupPreload = builder.startupPreload;
+        lazyRestore = builder.lazyRestore;
     }
 
     public static Fragmentation getDefault() {
@@ -71,6 +119,111 @@ public class Fragmentation {
         this.handler = handler;
     }
 
+    public ActionMetricsListener getActionMetricsListener() {
+        return actionMetricsListener;
+    }
+
+    public void setActionMetricsListener(ActionMetricsListener actionMetricsListener) {
+        this.actionMetricsListener = actionMetricsListener;
+    }
+
+    public boolean isTrace() {
+        return trace;
+    }
+
+    public long getActionBudget() {
+        return actionBudget;
+    }
+
+    public void setActionBudget(long actionBudget) {
+        this.actionBudget = actionBudget;
+    }
+
+    public boolean isProfileLifecycle() {
+        return profileLifecycle;
+    }
+
+    public File getNavigationTraceFile() {
+        return navigationTraceFile;
+    }
+
+    public boolean isImmediateActions() {
+        return immediateActions;
+    }
+
+    public boolean isAdaptiveAnimation() {
+        return adaptiveAnimation;
+    }
+
+    /**
+     * The low-RAM profile:
+     * <ul>
+     * <li>the Fragment animations are loaded when they are first used</li>
+     * <li>popTo() doesn't keep the popped view in a mock view to play its exit animation</li>
+     * <li>the swipe-back doesn't move the previous Fragment(no parallax)</li>
+     * <li>the stack view is not displayed</li>
+     * <li>the popped Fragments are not pooled</li>
+     * <li>the likely next Fragments are not prewarmed</li>
+     * </ul>
+     */
+    public boolean isLowRam() {
+        return lowRam != null && lowRam;
+    }
+
+    void initLowRam(Context context) {
+        if (lowRam != null) return;
+
+        boolean isLowRam;
+        if (lowRamProfile == LOW_RAM_AUTO) {
+            ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            isLowRam = am != null && (ActivityManagerCompat.isLowRamDevice(am) || am.getMemoryClass() < lowRamMemoryClass);
+        } else {
+            isLowRam = lowRamProfile == LOW_RAM_ON;
+        }
+        if (isLowRam) {
+            mode = NONE;
+        }
+        lowRam = isLowRam;
+    }
+
+    /**
+     * @return 0 if the pool is disabled.
+     */
+    public int getFragmentPoolSize() {
+        return isLowRam() ? 0 : fragmentPoolSize;
+    }
+
+    public boolean isPredictivePrewarm() {
+        return predictivePrewarm && !isLowRam();
+    }
+
+    public PrewarmLayoutProvider getPrewarmLayoutProvider() {
+        return prewarmLayoutProvider;
+    }
+
+    /**
+     * @return 0 if the preload list isn't recorded, it's only recorded in debug.
+     */
+    public long getPreloadRecordTime() {
+        return debug ? preloadRecordTime : 0;
+    }
+
+    public boolean isStartupPreload() {
+        return startupPreload;
+    }
+
+    public boolean isLazyRestore() {
+        return lazyRestore;
+    }
+
+    /**
+     * Starts preloading the classes and resources of assets/fragmentation_preload.txt on a background thread,
+     * call it in Application.onCreate() to start earlier than the first Activity.
+     */
+    public void preload(Context context) {
+        StartupPreloadList.preload(context);
+    }
+
     public int getMode() {
         return mode;
     }
@@ -84,10 +237,30 @@ public class Fragmentation {
     @interface StackViewMode {
     }
 
+    @IntDef({LOW_RAM_AUTO, LOW_RAM_ON, LOW_RAM_OFF})
+    @Retention(RetentionPolicy.SOURCE)
+    @interface LowRamProfile {
+    }
+
     public static class FragmentationBuilder {
         private boolean debug;
         private int mode;
         private ExceptionHandler handler;
+        private ActionMetricsListener actionMetricsListener;
+        private boolean trace;
+        private long actionBudget;
+        private boolean profileLifecycle;
+        private File navigationTraceFile;
+        private boolean immediateActions;
+        private boolean adaptiveAnimation;
+        private int lowRamProfile = LOW_RAM_AUTO;
+        private int lowRamMemoryClass = DEFAULT_LOW_RAM_MEMORY_CLASS;
+        private int fragmentPoolSize;
+        private boolean predictivePrewarm;
+        private PrewarmLayoutProvider prewarmLayoutProvider;
+        private long preloadRecordTime;
+        private boolean startupPreload;
+        private boolean lazyRestore;
 
         /**
          * @param debug Suppressed Exception("Can not perform this action after onSaveInstanceState!") when debug=false
@@ -117,6 +290,170 @@ public class Fragmentation {
             return this;
         }
 
+        /**
+         * @param listener Receive the latency of each action(start, pop, back...), no metrics are recorded if null.
+         */
+        public FragmentationBuilder actionMetricsListener(ActionMetricsListener listener) {
+            this.actionMetricsListener = listener;
+            return this;
+        }
+
+        /**
+         * @param trace Add system trace sections(visible in Systrace/Perfetto) around each action and lifecycle hook.
+         */
+        public FragmentationBuilder trace(boolean trace) {
+            this.trace = trace;
+            return this;
+        }
+
+        /**
+         * Report the action(start, pop, back...) which blocks the main thread longer than the budget,
+         * including the Fragment lifecycle it triggers synchronously, to the {@link ExceptionHandler}
+         * as an ActionBudgetExceededWarning with the sampled main thread's stack.
+         *
+         * @param budgetMillis 0 to disable, suggest enabling it only in debug/QA builds.
+         */
+        public FragmentationBuilder actionBudget(long budgetMillis) {
+            this.actionBudget = budgetMillis;
+            return this;
+        }
+
+        /**
+         * @param profileLifecycle Record the wall time of each lifecycle phase of the SupportFragments.
+         * @see me.yokeyword.fragmentation.helper.LifecycleProfiler
+         */
+        public FragmentationBuilder profileLifecycle(boolean profileLifecycle) {
+            this.profileLifecycle = profileLifecycle;
+            return this;
+        }
+
+        /**
+         * Export a rolling navigation timeline(actions, queue waits, commits, animations, visibility changes,
+         * lazy init) in the Chrome Trace Event JSON format, open it in chrome://tracing or Perfetto.
+         *
+         * @param file An app-private file, such as new File(context.getFilesDir(), "fragmentation_trace.json").
+         */
+        public FragmentationBuilder exportNavigationTrace(File file) {
+            this.navigationTraceFile = file;
+            return this;
+        }
+
+        /**
+         * Run each action(start, pop, back...) right away, without waiting for the animations between the
+         * actions, and disable the Fragment animations(as {@link me.yokeyword.fragmentation.anim.DefaultNoAnimator}).
+         * <p>
+         * It's always on when the system "Animator duration scale" is 0(animations off), e.g. for UI tests.
+         */
+        public FragmentationBuilder immediateActions(boolean immediateActions) {
+            this.immediateActions = immediateActions;
+            return this;
+        }
+
+        /**
+         * Watch the frames of the Fragment transitions(API 16+), when the transitions of a Fragment class keep
+         * dropping frames, downgrade its animator step by step: app animator -> fade -> no animation.
+         * <p>
+         * The decisions are remembered on the device until the system is updated.
+         * <p>
+         * The Fragments restored in super.onCreate() of the Activity are created before the monitor, they aren't
+         * downgraded until they are recreated.
+         */
+        public FragmentationBuilder adaptiveAnimation(boolean adaptiveAnimation) {
+            this.adaptiveAnimation = adaptiveAnimation;
+            return this;
+        }
+
+        /**
+         * Sets when to use the low-RAM profile, see {@link Fragmentation#isLowRam()}.
+         * <p>
+         * Default:LOW_RAM_AUTO
+         */
+        public FragmentationBuilder lowRamProfile(@LowRamProfile int profile) {
+            this.lowRamProfile = profile;
+            return this;
+        }
+
+        /**
+         * @param memoryClassMb The memory class(ActivityManager.getMemoryClass()) below which LOW_RAM_AUTO
+         *                      uses the low-RAM profile, default 96.
+         */
+        public FragmentationBuilder lowRamMemoryClass(int memoryClassMb) {
+            this.lowRamMemoryClass = memoryClassMb;
+            return this;
+        }
+
+        /**
+         * Park up to poolSize popped Fragments(per Activity) with their view, a later start() of the same
+         * class and tag reuses the parked instance instead of creating the view again.
+         * <p>
+         * Only the Fragments which opted in by {@link SupportFragmentDelegate#setReusable(boolean)}, and have no
+         * child Fragments, are parked.
+         * When a Fragment is reused, the instance passed to start() only gives its arguments.
+         * <p>
+         * The pool keeps the old view of a parked Fragment, returned by
+         * {@link SupportFragmentDelegate#takePreparedView()} when it's reused. onLazyInitView() runs again on
+         * that kept view, so it must not assume a freshly inflated one(e.g. set the data, don't add child views).
+         * <p>
+         * Default:0(disabled)
+         */
+        public FragmentationBuilder fragmentPoolSize(int poolSize) {
+            this.fragmentPoolSize = poolSize;
+            return this;
+        }
+
+        /**
+         * Learn the from -> to Fragment transitions on the device(saved in files/fragmentation_navigation_model.json),
+         * and when the enter animation of a Fragment ends, prewarm its likely next Fragments in the idle time:
+         * load their classes and the animations, and inflate the layouts of the {@link PrewarmLayoutProvider}.
+         */
+        public FragmentationBuilder predictivePrewarm(boolean predictivePrewarm) {
+            this.predictivePrewarm = predictivePrewarm;
+            return this;
+        }
+
+        /**
+         * The layouts inflated ahead of time by the predictive prewarm, optional.
+         */
+        public FragmentationBuilder prewarmLayoutProvider(PrewarmLayoutProvider provider) {
+            this.prewarmLayoutProvider = provider;
+            return this;
+        }
+
+        /**
+         * Debug only: record the Fragment classes, their view classes, animations(and layouts of the
+         * {@link PrewarmLayoutProvider}) used during the first milliseconds after the first Activity is created.
+         * The list is written to [external files]/fragmentation_preload.txt, copy it to src/main/assets/
+         * for {@link #startupPreload(boolean)}.
+         * <p>
+         * The recording starts after super.onCreate() of the Activity, the Fragments restored there aren't recorded.
+         */
+        public FragmentationBuilder preloadRecordTime(long millis) {
+            this.preloadRecordTime = millis;
+            return this;
+        }
+
+        /**
+         * When the first Activity is created, preload the list of assets/fragmentation_preload.txt on a
+         * background thread, see {@link #preloadRecordTime(long)}.
+         */
+        public FragmentationBuilder startupPreload(boolean startupPreload) {
+            this.startupPreload = startupPreload;
+            return this;
+        }
+
+        /**
+         * When the Activity is restored(e.g. after the process was killed in the background), hold the hidden
+         * Fragments(the deeper Fragments of the stacks, the hidden tabs) at CREATED without a view, their views
+         * are created when they are shown again(pop, popTo(), showHideFragment(), swipe-back).
+         * <p>
+         * onSupportVisible() and onLazyInitView() are called when the view is created, as before. A Fragment shown by
+         * a transaction of the app itself gets its view right after that transaction.
+         */
+        public FragmentationBuilder lazyRestore(boolean lazyRestore) {
+            this.lazyRestore = lazyRestore;
+            return this;
+        }
+
         public Fragmentation install() {
             synchronized (Fragmentation.class) {
                 if (Fragmentation.INSTANCE != null) {
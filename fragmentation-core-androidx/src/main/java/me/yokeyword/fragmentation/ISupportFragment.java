@@ -10,6 +10,16 @@ import androidx.annotation.Nullable;
 import me.yokeyword.fragmentation.anim.FragmentAnimator;
 
 /**
+ * 不继承SupportFragment时, 实现该接口的Fragment需要把以下方法转发给{@link SupportFragmentDelegate}:
+ * <p>
+ * A Fragment implementing it without extending SupportFragment forwards these Fragment methods to the
+ * same-named methods of its {@link #getSupportDelegate()}: onAttach, onCreate, onCreateAnimation,
+ * onCreateAnimator, onActivityCreated, onSaveInstanceState, onResume, onPause, onDestroyView, onDestroy,
+ * onHiddenChanged and setUserVisibleHint.
+ * <p>
+ * onCreateAnimator runs the {@link me.yokeyword.fragmentation.anim.PropertyFragmentAnimator}, without the
+ * forward such a Fragment has no transition animation(onCreateAnimation returns null for it).
+ * <p>
  * Created by YoKey on 17/6/23.
  */
 
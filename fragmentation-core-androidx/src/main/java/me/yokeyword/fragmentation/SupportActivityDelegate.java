@@ -3,6 +3,8 @@ package me.yokeyword.fragmentation;
 import android.os.Bundle;
 import android.view.MotionEvent;
 
+import java.util.List;
+
 import androidx.annotation.DrawableRes;
 import androidx.annotation.Nullable;
 import androidx.core.app.ActivityCompat;
@@ -13,6 +15,8 @@ import androidx.fragment.app.FragmentationMagician;
 import me.yokeyword.fragmentation.anim.DefaultVerticalAnimator;
 import me.yokeyword.fragmentation.anim.FragmentAnimator;
 import me.yokeyword.fragmentation.debug.DebugStackDelegate;
+import me.yokeyword.fragmentation.helper.internal.JankMonitor;
+import me.yokeyword.fragmentation.helper.internal.StartupPreloadList;
 import me.yokeyword.fragmentation.queue.Action;
 
 public class SupportActivityDelegate {
@@ -24,6 +28,7 @@ public class SupportActivityDelegate {
     private FragmentAnimator mFragmentAnimator;
     private int mDefaultFragmentBackground = 0;
     private DebugStackDelegate mDebugStackDelegate;
+    JankMonitor mJankMonitor;
 
     public SupportActivityDelegate(ISupportActivity support) {
         if (!(support instanceof FragmentActivity))
@@ -41,11 +46,51 @@ public class SupportActivityDelegate {
     }
 
     public void onCreate(@Nullable Bundle savedInstanceState) {
+        Fragmentation fragmentation = Fragmentation.getDefault();
+        // Already picked by the first Fragment restored in super.onCreate(), if any
+        fragmentation.initLowRam(mActivity);
+        if (fragmentation.getPreloadRecordTime() > 0) {
+            StartupPreloadList.record(mActivity, fragmentation.getPreloadRecordTime());
+        } else if (fragmentation.isStartupPreload()) {
+            fragmentation.preload(mActivity);
+        }
         mTransactionDelegate = getTransactionDelegate();
+        // The Fragments restored by super.onCreate() have collected their hidden states
+        mTransactionDelegate.flushRestoredStates();
         mDebugStackDelegate = new DebugStackDelegate(mActivity);
 
         mFragmentAnimator = mSupport.onCreateFragmentAnimator();
         mDebugStackDelegate.onCreate(Fragmentation.getDefault().getMode());
+
+        // The Fragments restored by super.onCreate() were created before the monitor,
+        // they keep the app animator until they are recreated.
+        if (Fragmentation.getDefault().isAdaptiveAnimation() && JankMonitor.isSupported()) {
+            mJankMonitor = new JankMonitor(mActivity, new JankMonitor.DowngradeListener() {
+                @Override
+                public void onDowngrade(String fragmentClassName, int level) {
+                    notifyAnimatorDowngraded(getSupportFragmentManager(), fragmentClassName);
+                }
+            });
+        }
+    }
+
+    /**
+     * Including the child Fragments, at any nesting depth.
+     */
+    private void notifyAnimatorDowngraded(FragmentManager fragmentManager, String fragmentClassName) {
+        List<Fragment> fragmentList = FragmentationMagician.getActiveFragments(fragmentManager);
+        if (fragmentList == null) return;
+
+        for (Fragment fragment : fragmentList) {
+            if (fragment == null) continue;
+
+            if (fragment instanceof ISupportFragment && fragment.getClass().getName().equals(fragmentClassName)) {
+                ((ISupportFragment) fragment).getSupportDelegate().notifyAnimatorChanged();
+            }
+            if (fragment.getHost() != null) {
+                notifyAnimatorDowngraded(fragment.getChildFragmentManager(), fragmentClassName);
+            }
+        }
     }
 
     public TransactionDelegate getTransactionDelegate() {
@@ -81,9 +126,7 @@ public class SupportActivityDelegate {
                 SupportFragmentDelegate delegate = iF.getSupportDelegate();
                 if (delegate.mAnimByActivity) {
                     delegate.mFragmentAnimator = fragmentAnimator.copy();
-                    if (delegate.mAnimHelper != null) {
-                        delegate.mAnimHelper.notifyChanged(delegate.mFragmentAnimator);
-                    }
+                    delegate.notifyAnimatorChanged();
                 }
             }
         }
@@ -174,6 +217,9 @@ public class SupportActivityDelegate {
 
     public void onDestroy() {
         mDebugStackDelegate.onDestroy();
+        if (mJankMonitor != null) {
+            mJankMonitor.stop();
+        }
     }
 
     public boolean dispatchTouchEvent(MotionEvent ev) {
@@ -1,5 +1,7 @@
 package me.yokeyword.fragmentation;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
@@ -8,18 +10,27 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
-import androidx.fragment.app.FragmentationMagician;
 import me.yokeyword.fragmentation.anim.FragmentAnimator;
+import me.yokeyword.fragmentation.helper.internal.AnimatorDurationScale;
 import me.yokeyword.fragmentation.helper.internal.AnimatorHelper;
+import me.yokeyword.fragmentation.helper.internal.HardwareLayerHelper;
+import me.yokeyword.fragmentation.helper.internal.JankMonitor;
+import me.yokeyword.fragmentation.helper.internal.LifecycleTimer;
+import me.yokeyword.fragmentation.helper.internal.NavigationTimeline;
 import me.yokeyword.fragmentation.helper.internal.ResultRecord;
+import me.yokeyword.fragmentation.helper.internal.TraceHelper;
 import me.yokeyword.fragmentation.helper.internal.TransactionRecord;
 import me.yokeyword.fragmentation.helper.internal.VisibleDelegate;
 
@@ -52,11 +63,32 @@ public class SupportFragmentDelegate {
     private Fragment mFragment;
     private ISupportActivity mSupport;
     private boolean mRootViewClickable;
+    private boolean mTransitionLayerEnabled = true;
+    // Fragment pool, prewarm
+    private boolean mReusable;
+    private boolean mReused;
+    private View mPreparedView;
+    private boolean mPreparedViewReused;
+    private boolean mViewReused;
+    // Lazy restore: held at CREATED until it's shown
+    boolean mLazyRestored;
+    private LifecycleTimer mLifecycleTimer;
     private Runnable mNotifyEnterAnimEndRunnable = new Runnable() {
         @Override
         public void run() {
             if (mFragment == null) return;
-            mSupportF.onEnterAnimationEnd(mSaveInstanceState);
+            boolean trace = TraceHelper.isEnabled();
+            if (trace) TraceHelper.beginSection("onEnterAnimationEnd", mSupportF);
+            try {
+                mSupportF.onEnterAnimationEnd(mSaveInstanceState);
+            } finally {
+                if (trace) TraceHelper.endSection();
+            }
+            if (mLifecycleTimer != null) {
+                mLifecycleTimer.onEnterAnimationEnd();
+            }
+            NavigationTimeline.instant("onEnterAnimationEnd", "lifecycle", mSupportF);
+            mTransactionDelegate.onEnterAnimationEnd(mSupportF);
 
             if (mRootViewClickable) return;
             final View view = mFragment.getView();
@@ -112,6 +144,17 @@ public class SupportFragmentDelegate {
         } else {
             throw new RuntimeException(context.getClass().getSimpleName() + " must impl ISupportActivity!");
         }
+        // Restored in super.onCreate() of the Activity, before the Activity picks the profile:
+        // its AnimatorHelper must be built under the right one.
+        Fragmentation.getDefault().initLowRam(_mActivity);
+
+        if (Fragmentation.getDefault().isProfileLifecycle()) {
+            if (mLifecycleTimer == null) {
+                mLifecycleTimer = new LifecycleTimer(mFragment.getClass());
+                getVisibleDelegate().setLifecycleTimer(mLifecycleTimer);
+            }
+            mLifecycleTimer.onAttach();
+        }
     }
 
     public void onCreate(@Nullable Bundle savedInstanceState) {
@@ -135,18 +178,18 @@ public class SupportFragmentDelegate {
             mFragmentAnimator = savedInstanceState.getParcelable(TransactionDelegate.FRAGMENTATION_STATE_SAVE_ANIMATOR);
             mIsHidden = savedInstanceState.getBoolean(TransactionDelegate.FRAGMENTATION_STATE_SAVE_IS_HIDDEN);
             mContainerId = savedInstanceState.getInt(TransactionDelegate.FRAGMENTATION_ARG_CONTAINER);
-
-            // RootFragment
-            if (mRootStatus != STATUS_UN_ROOT) {
-                FragmentationMagician.reorderIndices(mFragment.getFragmentManager());
-            }
         }
 
         // Fix the overlapping BUG on pre-24.0.0
         processRestoreInstanceState(savedInstanceState);
-        mAnimHelper = new AnimatorHelper(_mActivity.getApplicationContext(), mFragmentAnimator);
+        if (!mReused || mAnimHelper == null) {
+            mAnimHelper = new AnimatorHelper(_mActivity.getApplicationContext(), getAdaptedAnimator(), mTransactionDelegate.mActionQueue.isImmediate());
+        }
 
         final Animation enter = getEnterAnim();
+        if (mLifecycleTimer != null) {
+            mLifecycleTimer.onCreateEnd();
+        }
         if (enter == null) return;
 
         getEnterAnim().setAnimationListener(new Animation.AnimationListener() {
@@ -175,6 +218,7 @@ public class SupportFragmentDelegate {
     }
 
     public Animation onCreateAnimation(int transit, boolean enter, int nextAnim) {
+        mAnimHelper.checkScaleChanged();
         if ((mSupport.getSupportDelegate().mPopMultipleNoAnim || mLockAnim)) {
             if (transit == FragmentTransaction.TRANSIT_FRAGMENT_CLOSE && enter) {
                 return mAnimHelper.getNoneAnimFixed();
@@ -187,15 +231,20 @@ public class SupportFragmentDelegate {
                 if (mRootStatus == STATUS_ROOT_ANIM_DISABLE) {
                     enterAnim = mAnimHelper.getNoneAnim();
                 } else {
-                    enterAnim = mAnimHelper.enterAnim;
+                    enterAnim = mAnimHelper.getEnterAnim();
                     fixAnimationListener(enterAnim);
+                    watchTransition(enterAnim);
                 }
-                return enterAnim;
+                return transitionAnim(enterAnim);
             } else {
-                return mAnimHelper.popExitAnim;
+                return transitionAnim(mAnimHelper.getPopExitAnim());
             }
         } else if (transit == FragmentTransaction.TRANSIT_FRAGMENT_CLOSE) {
-            return enter ? mAnimHelper.popEnterAnim : mAnimHelper.exitAnim;
+            if (enter) {
+                return transitionAnim(mAnimHelper.getPopEnterAnim());
+            }
+            watchTransition(mAnimHelper.getExitAnim());
+            return transitionAnim(mAnimHelper.getExitAnim());
         } else {
             if (mIsSharedElement && enter) {
                 compatSharedElements();
@@ -209,6 +258,71 @@ public class SupportFragmentDelegate {
         }
     }
 
+    /**
+     * Runs the {@link me.yokeyword.fragmentation.anim.PropertyFragmentAnimator}, onCreateAnimation() has
+     * returned null for it.
+     * <p>
+     * Must be forwarded by Fragment#onCreateAnimator(), see {@link ISupportFragment}.
+     */
+    @Nullable
+    public Animator onCreateAnimator(int transit, boolean enter, int nextAnim) {
+        if (!mAnimHelper.isPropertyAnimator()) return null;
+
+        Animator animator;
+        if (transit == FragmentTransaction.TRANSIT_FRAGMENT_OPEN) {
+            if (enter) {
+                if (mRootStatus == STATUS_ROOT_ANIM_DISABLE) return null;
+                animator = mAnimHelper.getEnterAnimator();
+                if (animator != null) {
+                    animator.addListener(new AnimatorListenerAdapter() {
+                        @Override
+                        public void onAnimationStart(Animator animation) {
+                            mSupport.getSupportDelegate().mFragmentClickable = false;  // 开启防抖动
+                        }
+
+                        @Override
+                        public void onAnimationEnd(Animator animation) {
+                            mSupport.getSupportDelegate().mFragmentClickable = true;
+                        }
+                    });
+                }
+            } else {
+                animator = mAnimHelper.getPopExitAnimator();
+            }
+        } else if (transit == FragmentTransaction.TRANSIT_FRAGMENT_CLOSE) {
+            animator = enter ? mAnimHelper.getPopEnterAnimator() : mAnimHelper.getExitAnimator();
+        } else {
+            return null;
+        }
+        if (animator == null) return null;
+
+        final View view = mFragment.getView();
+        if (!enter && view != null) {
+            // The hidden view keeps the end values, e.g. for the swipe-back or a pop without animation
+            animator.addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    resetViewProperties(view);
+                }
+            });
+        }
+        if (mTransitionLayerEnabled) {
+            HardwareLayerHelper.promote(view, animator);
+        }
+        return animator;
+    }
+
+    private static void resetViewProperties(View view) {
+        view.setAlpha(1f);
+        view.setTranslationX(0f);
+        view.setTranslationY(0f);
+        view.setScaleX(1f);
+        view.setScaleY(1f);
+        view.setRotation(0f);
+        view.setRotationX(0f);
+        view.setRotationY(0f);
+    }
+
     public void onSaveInstanceState(Bundle outState) {
         getVisibleDelegate().onSaveInstanceState(outState);
         outState.putParcelable(TransactionDelegate.FRAGMENTATION_STATE_SAVE_ANIMATOR, mFragmentAnimator);
@@ -217,11 +331,18 @@ public class SupportFragmentDelegate {
     }
 
     public void onActivityCreated(@Nullable Bundle savedInstanceState) {
+        long activityCreatedStart = mLifecycleTimer != null ? mLifecycleTimer.onActivityCreatedStart() : 0;
+        mLazyRestored = false;
+        // Not taken by onCreateView(), don't keep the old view tree
+        mPreparedView = null;
         getVisibleDelegate().onActivityCreated(savedInstanceState);
 
         View view = mFragment.getView();
         if (view != null) {
-            mRootViewClickable = view.isClickable();
+            if (!mViewReused) {
+                mRootViewClickable = view.isClickable();
+            }
+            mViewReused = false;
             view.setClickable(true);
             setBackground(view);
         }
@@ -240,6 +361,15 @@ public class SupportFragmentDelegate {
         if (mFirstCreateView) {
             mFirstCreateView = false;
         }
+
+        if (mReused) {
+            mReused = false;
+            mSupportF.onNewBundle(mFragment.getArguments());
+        }
+
+        if (mLifecycleTimer != null) {
+            mLifecycleTimer.onActivityCreatedEnd(activityCreatedStart);
+        }
     }
 
     public void onResume() {
@@ -254,16 +384,56 @@ public class SupportFragmentDelegate {
         mSupport.getSupportDelegate().mFragmentClickable = true;
         getVisibleDelegate().onDestroyView();
         getHandler().removeCallbacks(mNotifyEnterAnimEndRunnable);
+        if (mReusable && mFragment.isRemoving()) {
+            mPreparedView = mFragment.getView();
+            mPreparedViewReused = true;
+        }
     }
 
     public void onDestroy() {
         mTransactionDelegate.handleResultRecord(mFragment);
+
+        boolean parked = mReusable && mFragment.isRemoving()
+                && !_mActivity.isFinishing() && !_mActivity.isChangingConfigurations()
+                && !hasChildFragments()
+                && mTransactionDelegate.parkFragment(mSupportF, mFragment.getTag());
+        if (!parked) {
+            mPreparedView = null;
+        }
+    }
+
+    /**
+     * The child Fragments aren't parked with their parent, its kept view would miss them.
+     */
+    private boolean hasChildFragments() {
+        return !mFragment.getChildFragmentManager().getFragments().isEmpty();
     }
 
     public void onHiddenChanged(boolean hidden) {
+        // Shown by a transaction of the app, the library attaches the Fragments it reveals before
+        if (!hidden && mLazyRestored) {
+            mTransactionDelegate.attachLazyRestored(mFragment.getFragmentManager(), mFragment, false);
+        }
         getVisibleDelegate().onHiddenChanged(hidden);
     }
 
+    /**
+     * @return true if the Fragment is held at CREATED without a view by the lazy restore,
+     * see {@link Fragmentation.FragmentationBuilder#lazyRestore(boolean)}.
+     */
+    public boolean isLazyRestored() {
+        return mLazyRestored;
+    }
+
+    /**
+     * Create the view of the Fragment held by the lazy restore now, e.g. before the swipe-back reveals it.
+     * Don't call it in a transaction.
+     */
+    public void restoreLazyView() {
+        if (!mLazyRestored) return;
+        mTransactionDelegate.attachLazyRestored(mFragment.getFragmentManager(), mFragment, true);
+    }
+
     public void setUserVisibleHint(boolean isVisibleToUser) {
         getVisibleDelegate().setUserVisibleHint(isVisibleToUser);
     }
@@ -359,15 +529,158 @@ public class SupportFragmentDelegate {
         return mFragmentAnimator;
     }
 
+    /**
+     * 被pop后是否可以放入Fragment池复用, 默认关闭, see {@link Fragmentation.FragmentationBuilder#fragmentPoolSize(int)}
+     * <p>
+     * A reused Fragment runs its lifecycle again from onAttach() with the arguments of the new start(), then
+     * receives them by onNewBundle(). Its view is kept, return {@link #takePreparedView()} from onCreateView(),
+     * the kept view is dropped if onCreateView() doesn't take it. A Fragment which has child Fragments when it's
+     * popped isn't parked.
+     */
+    public void setReusable(boolean reusable) {
+        this.mReusable = reusable;
+    }
+
+    public boolean isReusable() {
+        return mReusable;
+    }
+
+    /**
+     * The view kept by the Fragment pool, or inflated by {@link #prewarm(ISupportFragment, int)} or the
+     * predictive prewarm, e.g.
+     * <pre>
+     * View view = getSupportDelegate().takePreparedView();
+     * if (view == null) view = inflater.inflate(R.layout.fragment_detail, container, false);
+     * </pre>
+     *
+     * @return null if there isn't one.
+     */
+    @Nullable
+    public View takePreparedView() {
+        View view = mPreparedView;
+        mPreparedView = null;
+        if (view == null && mTransactionDelegate != null) {
+            mPreparedViewReused = false;
+            view = mTransactionDelegate.takePrewarmedView(mFragment.getClass());
+        }
+        if (view == null) return null;
+
+        // Still in the container or in the mock view of popTo()
+        if (view.getParent() instanceof ViewGroup) {
+            ((ViewGroup) view.getParent()).removeView(view);
+        }
+        view.clearAnimation();
+        mViewReused = mPreparedViewReused;
+        return view;
+    }
+
+    /**
+     * 预加载: 在后台线程inflate目标Fragment的布局, 目标Fragment在onCreateView()中通过
+     * {@link #takePreparedView()} 取得
+     * <p>
+     * Call it before start(toFragment), e.g. when the list is displayed. The layout must be inflatable
+     * off the main thread(see AsyncLayoutInflater: no &lt;fragment&gt;, no Handler in the view constructors),
+     * otherwise it's inflated on the main thread. If onCreateView() runs before the inflation finishes,
+     * the prewarmed view is dropped.
+     */
+    public void prewarm(final ISupportFragment toFragment, @LayoutRes int layoutId) {
+        if (_mActivity == null)
+            throw new RuntimeException(mFragment.getClass().getSimpleName() + " not attach!");
+
+        // Inflated with the LayoutParams of the container
+        ViewGroup container = null;
+        View view = mFragment.getView();
+        if (view != null && view.getParent() instanceof ViewGroup) {
+            container = (ViewGroup) view.getParent();
+        }
+
+        final long start = System.nanoTime();
+        new AsyncLayoutInflater(_mActivity).inflate(layoutId, container, new AsyncLayoutInflater.OnInflateFinishedListener() {
+            @Override
+            public void onInflateFinished(@NonNull View view, int resid, @Nullable ViewGroup parent) {
+                NavigationTimeline.complete("prewarm", "inflate", toFragment, start, System.nanoTime() - start);
+                toFragment.getSupportDelegate().onPrewarmed(view);
+            }
+        });
+    }
+
+    private void onPrewarmed(View view) {
+        // Too late, or the pool has kept a view
+        if (mFragment.getView() != null || mFragment.isRemoving() || mPreparedView != null) return;
+        mPreparedView = view;
+        mPreparedViewReused = false;
+    }
+
+    /**
+     * Rebind the parked Fragment to the transaction of the new Fragment which it replaces.
+     */
+    void prepareReuse(SupportFragmentDelegate newDelegate) {
+        mReused = true;
+        mTransactionRecord = newDelegate.mTransactionRecord;
+        mNewBundle = newDelegate.mNewBundle;
+        mEnterAnimListener = newDelegate.mEnterAnimListener;
+        mLockAnim = false;
+        mSaveInstanceState = null;
+        getVisibleDelegate().onReuse();
+    }
+
+    /**
+     * 转场动画期间是否将Fragment的View提升为硬件层, 默认开启
+     * <p>
+     * Disable it if the view changes its content while animating(e.g. video, WebView), the layer would be redrawn
+     * every frame.
+     */
+    public void setTransitionLayerEnabled(boolean enabled) {
+        this.mTransitionLayerEnabled = enabled;
+    }
+
+    public boolean isTransitionLayerEnabled() {
+        return mTransitionLayerEnabled;
+    }
+
     /**
      * Set the fragment animation.
      */
     public void setFragmentAnimator(FragmentAnimator fragmentAnimator) {
         this.mFragmentAnimator = fragmentAnimator;
+        notifyAnimatorChanged();
+        mAnimByActivity = false;
+    }
+
+    void notifyAnimatorChanged() {
         if (mAnimHelper != null) {
-            mAnimHelper.notifyChanged(fragmentAnimator);
+            mAnimHelper.notifyChanged(getAdaptedAnimator());
+        }
+    }
+
+    /**
+     * @return The FragmentAnimator, downgraded if the transitions of this Fragment class keep dropping frames.
+     */
+    private FragmentAnimator getAdaptedAnimator() {
+        JankMonitor jankMonitor = mSupport.getSupportDelegate().mJankMonitor;
+        if (jankMonitor == null) return mFragmentAnimator;
+        return jankMonitor.downgrade(mFragment.getClass(), mFragmentAnimator);
+    }
+
+    /**
+     * The entering Fragment of a start, or the exiting Fragment of a pop, owns the transition.
+     */
+    @Nullable
+    private Animation transitionAnim(Animation animation) {
+        // PropertyFragmentAnimator: the Animator of onCreateAnimator() runs instead
+        if (mAnimHelper.isPropertyAnimator()) return null;
+
+        if (mTransitionLayerEnabled) {
+            HardwareLayerHelper.promote(getHandler(), mFragment.getView(), animation);
+        }
+        return animation;
+    }
+
+    private void watchTransition(Animation animation) {
+        JankMonitor jankMonitor = mSupport.getSupportDelegate().mJankMonitor;
+        if (jankMonitor != null && animation != null) {
+            jankMonitor.onTransitionStart(mFragment.getClass(), animation.getDuration());
         }
-        mAnimByActivity = false;
     }
 
     /**
@@ -599,19 +912,16 @@ public class SupportFragmentDelegate {
 
     private void processRestoreInstanceState(Bundle savedInstanceState) {
         if (savedInstanceState != null) {
-            FragmentTransaction ft = mFragment.getFragmentManager().beginTransaction();
-            if (mIsHidden) {
-                ft.hide(mFragment);
-            } else {
-                ft.show(mFragment);
-            }
-            ft.commitAllowingStateLoss();
+            // Applied with the other restored Fragments of the FragmentManager, in one transaction
+            mTransactionDelegate.restoreHiddenState(mFragment.getFragmentManager(), mFragment, mIsHidden,
+                    mRootStatus != STATUS_UN_ROOT);
         }
     }
 
     private void fixAnimationListener(Animation enterAnim) {
         // AnimationListener is not reliable.
         getHandler().postDelayed(mNotifyEnterAnimEndRunnable, enterAnim.getDuration());
+        NavigationTimeline.complete("enterAnimation", "animation", mSupportF, System.nanoTime(), enterAnim.getDuration() * 1000000);
         mSupport.getSupportDelegate().mFragmentClickable = true;
 
         if (mEnterAnimListener != null) {
@@ -666,6 +976,14 @@ public class SupportFragmentDelegate {
         return mHandler;
     }
 
+    /**
+     * @return The lifecycle phase timing of this Fragment, null if the lifecycle profiling is disabled.
+     */
+    @Nullable
+    public LifecycleTimer getLifecycleTimer() {
+        return mLifecycleTimer;
+    }
+
     public VisibleDelegate getVisibleDelegate() {
         if (mVisibleDelegate == null) {
             mVisibleDelegate = new VisibleDelegate(mSupportF);
@@ -679,8 +997,8 @@ public class SupportFragmentDelegate {
 
     private Animation getEnterAnim() {
         if (mCustomEnterAnim == Integer.MIN_VALUE) {
-            if (mAnimHelper != null && mAnimHelper.enterAnim != null) {
-                return mAnimHelper.enterAnim;
+            if (mAnimHelper != null) {
+                return mAnimHelper.getEnterAnim();
             }
         } else {
             try {
@@ -697,13 +1015,13 @@ public class SupportFragmentDelegate {
         if (enter != null) {
             return enter.getDuration();
         }
-        return NOT_FOUND_ANIM_TIME;
+        return AnimatorDurationScale.scale(NOT_FOUND_ANIM_TIME);
     }
 
     public long getExitAnimDuration() {
         if (mCustomExitAnim == Integer.MIN_VALUE) {
-            if (mAnimHelper != null && mAnimHelper.exitAnim != null) {
-                return mAnimHelper.exitAnim.getDuration();
+            if (mAnimHelper != null) {
+                return mAnimHelper.getExitAnim().getDuration();
             }
         } else {
             try {
@@ -713,13 +1031,13 @@ public class SupportFragmentDelegate {
             }
 
         }
-        return NOT_FOUND_ANIM_TIME;
+        return AnimatorDurationScale.scale(NOT_FOUND_ANIM_TIME);
     }
 
     private long getPopExitAnimDuration() {
         if (mCustomPopExitAnim == Integer.MIN_VALUE) {
-            if (mAnimHelper != null && mAnimHelper.popExitAnim != null) {
-                return mAnimHelper.popExitAnim.getDuration();
+            if (mAnimHelper != null) {
+                return mAnimHelper.getPopExitAnim().getDuration();
             }
         } else {
             try {
@@ -729,14 +1047,14 @@ public class SupportFragmentDelegate {
             }
 
         }
-        return NOT_FOUND_ANIM_TIME;
+        return AnimatorDurationScale.scale(NOT_FOUND_ANIM_TIME);
     }
 
     @Nullable
     Animation getExitAnim() {
         if (mCustomExitAnim == Integer.MIN_VALUE) {
-            if (mAnimHelper != null && mAnimHelper.exitAnim != null) {
-                return mAnimHelper.exitAnim;
+            if (mAnimHelper != null) {
+                return mAnimHelper.getExitAnim();
             }
         } else {
             try {
@@ -748,6 +1066,17 @@ public class SupportFragmentDelegate {
         return null;
     }
 
+    /**
+     * @return The exit Animator of the {@link me.yokeyword.fragmentation.anim.PropertyFragmentAnimator}, null for the Animations.
+     */
+    @Nullable
+    Animator getExitAnimator() {
+        if (mCustomExitAnim == Integer.MIN_VALUE && mAnimHelper != null) {
+            return mAnimHelper.getExitAnimator();
+        }
+        return null;
+    }
+
     interface EnterAnimListener {
         void onEnterAnimStart();
     }
@@ -1,5 +1,6 @@
 package me.yokeyword.fragmentation;
 
+import android.animation.Animator;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -10,16 +11,26 @@ import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
 import androidx.fragment.app.FragmentationMagician;
 import me.yokeyword.fragmentation.exception.AfterSaveStateTransactionWarning;
+import me.yokeyword.fragmentation.helper.internal.AnimatorDurationScale;
+import me.yokeyword.fragmentation.helper.internal.FragmentPool;
+import me.yokeyword.fragmentation.helper.internal.HardwareLayerHelper;
+import me.yokeyword.fragmentation.helper.internal.NavigationTimeline;
+import me.yokeyword.fragmentation.helper.internal.PredictivePrewarmer;
 import me.yokeyword.fragmentation.helper.internal.ResultRecord;
+import me.yokeyword.fragmentation.helper.internal.TraceHelper;
 import me.yokeyword.fragmentation.helper.internal.TransactionRecord;
 import me.yokeyword.fragmentation.queue.Action;
 import me.yokeyword.fragmentation.queue.ActionQueue;
@@ -53,12 +64,23 @@ class TransactionDelegate {
     private ISupportActivity mSupport;
     private FragmentActivity mActivity;
     private Handler mHandler;
+    private FragmentPool mFragmentPool;
+    private PredictivePrewarmer mPrewarmer;
+    private Map<FragmentManager, RestoreBatch> mRestoreBatches;
+    private final Runnable mFlushRestoreRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flushRestoredStates();
+        }
+    };
 
     TransactionDelegate(ISupportActivity support) {
         this.mSupport = support;
         this.mActivity = (FragmentActivity) support;
         mHandler = new Handler(Looper.getMainLooper());
         mActionQueue = new ActionQueue(mHandler);
+        AnimatorDurationScale.init(mActivity);
+        mActionQueue.setImmediate(Fragmentation.getDefault().isImmediateActions());
     }
 
     private static <T> void checkNotNull(T value, String message) {
@@ -77,7 +99,7 @@ class TransactionDelegate {
     }
 
     void loadRootTransaction(final FragmentManager fm, final int containerId, final ISupportFragment to, final boolean addToBackStack, final boolean allowAnimation) {
-        enqueue(fm, new Action(Action.ACTION_LOAD) {
+        enqueue(fm, null, to, new Action(Action.ACTION_LOAD) {
             @Override
             public void run() {
                 bindContainerId(containerId, to);
@@ -96,7 +118,7 @@ class TransactionDelegate {
     }
 
     void loadMultipleRootTransaction(final FragmentManager fm, final int containerId, final int showPosition, final ISupportFragment... tos) {
-        enqueue(fm, new Action(Action.ACTION_LOAD) {
+        enqueue(fm, null, showPosition >= 0 && showPosition < tos.length ? tos[showPosition] : null, new Action(Action.ACTION_LOAD) {
             @Override
             public void run() {
                 FragmentTransaction ft = fm.beginTransaction();
@@ -124,7 +146,10 @@ class TransactionDelegate {
      * Dispatch the start transaction.
      */
     void dispatchStartTransaction(final FragmentManager fm, final ISupportFragment from, final ISupportFragment to, final int requestCode, final int launchMode, final int type) {
-        enqueue(fm, new Action(launchMode == ISupportFragment.SINGLETASK ? Action.ACTION_POP_MOCK : Action.ACTION_NORMAL) {
+        if (from != null && to != null && getPrewarmer() != null) {
+            mPrewarmer.record(from, to);
+        }
+        enqueue(fm, from, to, new Action(launchMode == ISupportFragment.SINGLETASK ? Action.ACTION_POP_MOCK : Action.ACTION_NORMAL) {
             @Override
             public void run() {
                 doDispatchStartTransaction(fm, from, to, requestCode, launchMode, type);
@@ -136,7 +161,7 @@ class TransactionDelegate {
      * Show showFragment then hide hideFragment
      */
     void showHideFragment(final FragmentManager fm, final ISupportFragment showFragment, final ISupportFragment hideFragment) {
-        enqueue(fm, new Action() {
+        enqueue(fm, hideFragment, showFragment, new Action() {
             @Override
             public void run() {
                 doShowHideFragment(fm, showFragment, hideFragment);
@@ -148,7 +173,7 @@ class TransactionDelegate {
      * Start the target Fragment and pop itself
      */
     void startWithPop(final FragmentManager fm, final ISupportFragment from, final ISupportFragment to) {
-        enqueue(fm, new Action(Action.ACTION_POP_MOCK) {
+        enqueue(fm, from, to, new Action(Action.ACTION_POP_MOCK) {
             @Override
             public void run() {
                 ISupportFragment top = getTopFragmentForStart(from, fm);
@@ -162,7 +187,8 @@ class TransactionDelegate {
                 FragmentationMagician.executePendingTransactionsAllowingStateLoss(fm);
                 top.getSupportDelegate().mLockAnim = true;
                 if (!FragmentationMagician.isStateSaved(fm)) {
-                    mockStartWithPopAnim(SupportHelper.getTopFragment(fm), to, top.getSupportDelegate().mAnimHelper.popExitAnim);
+                    mockStartWithPopAnim(SupportHelper.getTopFragment(fm), to, top.getSupportDelegate().mAnimHelper.getPopExitAnim(),
+                            top.getSupportDelegate().mAnimHelper.getPopExitAnimator());
                 }
 
                 removeTopFragment(fm);
@@ -181,7 +207,7 @@ class TransactionDelegate {
     }
 
     void startWithPopTo(final FragmentManager fm, final ISupportFragment from, final ISupportFragment to, final String fragmentTag, final boolean includeTargetFragment) {
-        enqueue(fm, new Action(Action.ACTION_POP_MOCK) {
+        enqueue(fm, from, to, new Action(Action.ACTION_POP_MOCK) {
             @Override
             public void run() {
                 int flag = 0;
@@ -203,7 +229,8 @@ class TransactionDelegate {
                 handleAfterSaveInStateTransactionException(fm, "startWithPopTo()");
                 FragmentationMagician.executePendingTransactionsAllowingStateLoss(fm);
                 if (!FragmentationMagician.isStateSaved(fm)) {
-                    mockStartWithPopAnim(SupportHelper.getTopFragment(fm), to, top.getSupportDelegate().mAnimHelper.popExitAnim);
+                    mockStartWithPopAnim(SupportHelper.getTopFragment(fm), to, top.getSupportDelegate().mAnimHelper.getPopExitAnim(),
+                            top.getSupportDelegate().mAnimHelper.getPopExitAnimator());
                 }
 
                 safePopTo(fragmentTag, fm, flag, willPopFragments);
@@ -218,7 +245,7 @@ class TransactionDelegate {
      * Remove
      */
     void remove(final FragmentManager fm, final Fragment fragment, final boolean showPreFragment) {
-        enqueue(fm, new Action(Action.ACTION_POP, fm) {
+        enqueue(fm, null, fragment, new Action(Action.ACTION_POP, fm) {
             @Override
             public void run() {
                 FragmentTransaction ft = fm.beginTransaction()
@@ -228,6 +255,7 @@ class TransactionDelegate {
                 if (showPreFragment) {
                     ISupportFragment preFragment = SupportHelper.getPreFragment(fragment);
                     if (preFragment instanceof Fragment) {
+                        attachBeforeReveal(fm, preFragment);
                         ft.show((Fragment) preFragment);
                     }
                 }
@@ -244,6 +272,7 @@ class TransactionDelegate {
             @Override
             public void run() {
                 handleAfterSaveInStateTransactionException(fm, "pop()");
+                attachBeforePop(fm);
                 FragmentationMagician.popBackStackAllowingStateLoss(fm);
                 removeTopFragment(fm);
             }
@@ -268,6 +297,7 @@ class TransactionDelegate {
         enqueue(fm, new Action(Action.ACTION_POP_MOCK) {
             @Override
             public void run() {
+                attachBeforePop(fm);
                 mSupport.getSupportDelegate().mPopMultipleNoAnim = true;
                 removeTopFragment(fm);
                 FragmentationMagician.popBackStackAllowingStateLoss(fm);
@@ -321,18 +351,41 @@ class TransactionDelegate {
             final ResultRecord resultRecord = args.getParcelable(FRAGMENTATION_ARG_RESULT_RECORD);
             if (resultRecord == null) return;
 
-            ISupportFragment targetFragment = (ISupportFragment) from.getFragmentManager().getFragment(from.getArguments(), FRAGMENTATION_STATE_SAVE_RESULT);
+            final ISupportFragment targetFragment = (ISupportFragment) from.getFragmentManager().getFragment(from.getArguments(), FRAGMENTATION_STATE_SAVE_RESULT);
+            if (targetFragment.getSupportDelegate().isLazyRestored()) {
+                // Its view is created by the pop transaction, deliver the result after it
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        targetFragment.onFragmentResult(resultRecord.requestCode, resultRecord.resultCode, resultRecord.resultBundle);
+                    }
+                });
+                return;
+            }
             targetFragment.onFragmentResult(resultRecord.requestCode, resultRecord.resultCode, resultRecord.resultBundle);
         } catch (IllegalStateException ignored) {
             // Fragment no longer exists
         }
     }
 
+    private void enqueue(FragmentManager fm, Object from, Object to, Action action) {
+        if (from != null) {
+            action.sourceClass = from.getClass();
+        }
+        if (to != null) {
+            action.targetClass = to.getClass();
+        }
+        enqueue(fm, action);
+    }
+
     private void enqueue(FragmentManager fm, Action action) {
         if (fm == null) {
             Log.w(TAG, "FragmentManager is null, skip the action!");
             return;
         }
+        if (action.fragmentManager == null) {
+            action.fragmentManager = fm;
+        }
         mActionQueue.enqueue(action);
     }
 
@@ -378,9 +431,172 @@ class TransactionDelegate {
 
         if (handleLaunchMode(fm, from, to, toFragmentTag, launchMode)) return;
 
+        to = reusePooledFragment(to, toFragmentTag);
         start(fm, from, to, toFragmentTag, dontAddToBackStack, sharedElementList, false, type);
     }
 
+    /**
+     * Collect the hidden state of a restored Fragment, the states of each FragmentManager are applied in one
+     * transaction by {@link #flushRestoredStates()}: when the Activity has created(the restored Fragments are
+     * created in Activity.onCreate()), or on the next message for the Fragments restored later.
+     *
+     * @param root The root Fragment needs the indices reordered(once for the FragmentManager).
+     */
+    void restoreHiddenState(FragmentManager fm, Fragment fragment, boolean hidden, boolean root) {
+        if (fm == null) return;
+
+        if (mRestoreBatches == null) {
+            mRestoreBatches = new HashMap<>();
+            mHandler.post(mFlushRestoreRunnable);
+        }
+        RestoreBatch batch = mRestoreBatches.get(fm);
+        if (batch == null) {
+            batch = new RestoreBatch();
+            mRestoreBatches.put(fm, batch);
+        }
+        batch.hiddenStates.put(fragment, hidden);
+        batch.reorderIndices |= root;
+    }
+
+    void flushRestoredStates() {
+        if (mRestoreBatches == null) return;
+
+        Map<FragmentManager, RestoreBatch> batches = mRestoreBatches;
+        mRestoreBatches = null;
+        mHandler.removeCallbacks(mFlushRestoreRunnable);
+
+        boolean lazyRestore = Fragmentation.getDefault().isLazyRestore();
+        boolean trace = TraceHelper.isEnabled();
+        if (trace) TraceHelper.beginSection("restoreHiddenStates", null);
+        try {
+            for (Map.Entry<FragmentManager, RestoreBatch> entry : batches.entrySet()) {
+                FragmentManager fm = entry.getKey();
+                RestoreBatch batch = entry.getValue();
+                if (fm.isDestroyed()) continue;
+
+                if (batch.reorderIndices) {
+                    FragmentationMagician.reorderIndices(fm);
+                }
+
+                FragmentTransaction ft = fm.beginTransaction();
+                for (Map.Entry<Fragment, Boolean> state : batch.hiddenStates.entrySet()) {
+                    Fragment fragment = state.getKey();
+                    // Removed in the meantime
+                    if (fragment.getFragmentManager() != fm) continue;
+
+                    if (state.getValue()) {
+                        ft.hide(fragment);
+                        if (lazyRestore && fragment instanceof ISupportFragment) {
+                            // Held at CREATED, the view isn't created before it's shown
+                            ft.detach(fragment);
+                            ((ISupportFragment) fragment).getSupportDelegate().mLazyRestored = true;
+                        }
+                    } else {
+                        ft.show(fragment);
+                    }
+                }
+                if (ft.isEmpty()) continue;
+
+                if (FragmentationMagician.isExecutingActions(fm)) {
+                    ft.commitAllowingStateLoss();
+                } else {
+                    // Before the FragmentManager moves past CREATED: a detached Fragment's view is never created
+                    ft.commitNowAllowingStateLoss();
+                }
+            }
+        } finally {
+            if (trace) TraceHelper.endSection();
+        }
+    }
+
+    /**
+     * Create the view of a Fragment held at CREATED by the lazy restore.
+     *
+     * @param now false in a transaction, it's executed after it: only for the Fragments shown by the app's own
+     *            transactions, the library attaches the Fragments it reveals before, see {@link #attachBeforeReveal}.
+     */
+    void attachLazyRestored(FragmentManager fm, Fragment fragment, boolean now) {
+        if (fm == null || fm.isDestroyed()) return;
+
+        FragmentTransaction ft = fm.beginTransaction().attach(fragment);
+        if (now) {
+            ft.commitNowAllowingStateLoss();
+        } else {
+            ft.commitAllowingStateLoss();
+        }
+        NavigationTimeline.instant("attachLazyRestored", "transaction", fragment);
+    }
+
+    /**
+     * Create the view of a Fragment held by the lazy restore before a pop/show reveals it, so it's visible
+     * with its view. Not in a transaction.
+     */
+    private void attachBeforeReveal(FragmentManager fm, ISupportFragment fragment) {
+        if (fragment == null || !fragment.getSupportDelegate().mLazyRestored) return;
+        attachLazyRestored(fm, (Fragment) fragment, true);
+    }
+
+    private void attachBeforePop(FragmentManager fm) {
+        ISupportFragment top = SupportHelper.getBackStackTopFragment(fm);
+        if (top != null) {
+            attachBeforeReveal(fm, SupportHelper.getPreFragment((Fragment) top));
+        }
+    }
+
+    /**
+     * Prewarm the likely next Fragments of the Fragment whose enter animation has ended.
+     */
+    void onEnterAnimationEnd(ISupportFragment fragment) {
+        if (getPrewarmer() != null) {
+            mPrewarmer.prewarm(fragment, mSupport.getFragmentAnimator());
+        }
+    }
+
+    /**
+     * @return The view inflated by the predictive prewarm for the Fragment class, null if there isn't one.
+     */
+    View takePrewarmedView(Class<?> fragmentClass) {
+        return mPrewarmer != null ? mPrewarmer.takeView(fragmentClass) : null;
+    }
+
+    private PredictivePrewarmer getPrewarmer() {
+        if (mPrewarmer == null && Fragmentation.getDefault().isPredictivePrewarm()) {
+            mPrewarmer = new PredictivePrewarmer(mActivity);
+        }
+        return mPrewarmer;
+    }
+
+    /**
+     * Park the popped Fragment for a later start() of the same class and tag.
+     *
+     * @return false if the pool is disabled.
+     */
+    boolean parkFragment(ISupportFragment fragment, String tag) {
+        int poolSize = Fragmentation.getDefault().getFragmentPoolSize();
+        if (poolSize <= 0 || tag == null) return false;
+
+        if (mFragmentPool == null) {
+            mFragmentPool = new FragmentPool(poolSize);
+        }
+        mFragmentPool.put(fragment, tag);
+        return true;
+    }
+
+    /**
+     * @return The parked Fragment rebound to the arguments of the new one, or the new one.
+     */
+    private ISupportFragment reusePooledFragment(ISupportFragment to, String toFragmentTag) {
+        if (mFragmentPool == null || ((Fragment) to).isAdded()) return to;
+
+        ISupportFragment pooled = mFragmentPool.take(to.getClass(), toFragmentTag);
+        if (pooled == null || pooled == to) return to;
+
+        ((Fragment) pooled).setArguments(((Fragment) to).getArguments());
+        pooled.getSupportDelegate().prepareReuse(to.getSupportDelegate());
+        NavigationTimeline.instant("reuse", "pool", pooled);
+        return pooled;
+    }
+
     private ISupportFragment getTopFragmentForStart(ISupportFragment from, FragmentManager fm) {
         ISupportFragment top;
         if (from == null) {
@@ -399,61 +615,68 @@ class TransactionDelegate {
 
     private void start(FragmentManager fm, final ISupportFragment from, ISupportFragment to, String toFragmentTag,
                        boolean dontAddToBackStack, ArrayList<TransactionRecord.SharedElement> sharedElementList, boolean allowRootFragmentAnim, int type) {
-        FragmentTransaction ft = fm.beginTransaction();
-        boolean addMode = (type == TYPE_ADD || type == TYPE_ADD_RESULT || type == TYPE_ADD_WITHOUT_HIDE || type == TYPE_ADD_RESULT_WITHOUT_HIDE);
-        Fragment fromF = (Fragment) from;
-        Fragment toF = (Fragment) to;
-        Bundle args = getArguments(toF);
-        args.putBoolean(FRAGMENTATION_ARG_REPLACE, !addMode);
-
-        if (sharedElementList == null) {
-            if (addMode) { // Replace mode forbidden animation, the replace animations exist overlapping Bug on support-v4.
-                TransactionRecord record = to.getSupportDelegate().mTransactionRecord;
-                if (record != null && record.targetFragmentEnter != Integer.MIN_VALUE) {
-                    ft.setCustomAnimations(record.targetFragmentEnter, record.currentFragmentPopExit,
-                            record.currentFragmentPopEnter, record.targetFragmentExit);
-                    args.putInt(FRAGMENTATION_ARG_CUSTOM_ENTER_ANIM, record.targetFragmentEnter);
-                    args.putInt(FRAGMENTATION_ARG_CUSTOM_EXIT_ANIM, record.targetFragmentExit);
-                    args.putInt(FRAGMENTATION_ARG_CUSTOM_POP_EXIT_ANIM, record.currentFragmentPopExit);
+        boolean trace = TraceHelper.isEnabled();
+        if (trace) TraceHelper.beginSection("start", to);
+        try {
+            FragmentTransaction ft = fm.beginTransaction();
+            boolean addMode = (type == TYPE_ADD || type == TYPE_ADD_RESULT || type == TYPE_ADD_WITHOUT_HIDE || type == TYPE_ADD_RESULT_WITHOUT_HIDE);
+            Fragment fromF = (Fragment) from;
+            Fragment toF = (Fragment) to;
+            Bundle args = getArguments(toF);
+            args.putBoolean(FRAGMENTATION_ARG_REPLACE, !addMode);
+
+            if (sharedElementList == null) {
+                if (addMode) { // Replace mode forbidden animation, the replace animations exist overlapping Bug on support-v4.
+                    TransactionRecord record = to.getSupportDelegate().mTransactionRecord;
+                    if (record != null && record.targetFragmentEnter != Integer.MIN_VALUE) {
+                        ft.setCustomAnimations(record.targetFragmentEnter, record.currentFragmentPopExit,
+                                record.currentFragmentPopEnter, record.targetFragmentExit);
+                        args.putInt(FRAGMENTATION_ARG_CUSTOM_ENTER_ANIM, record.targetFragmentEnter);
+                        args.putInt(FRAGMENTATION_ARG_CUSTOM_EXIT_ANIM, record.targetFragmentExit);
+                        args.putInt(FRAGMENTATION_ARG_CUSTOM_POP_EXIT_ANIM, record.currentFragmentPopExit);
+                    } else {
+                        ft.setTransition(FragmentTransaction.TRANSIT_FRAGMENT_OPEN);
+                    }
                 } else {
-                    ft.setTransition(FragmentTransaction.TRANSIT_FRAGMENT_OPEN);
+                    args.putInt(FRAGMENTATION_ARG_ROOT_STATUS, SupportFragmentDelegate.STATUS_ROOT_ANIM_DISABLE);
                 }
             } else {
-                args.putInt(FRAGMENTATION_ARG_ROOT_STATUS, SupportFragmentDelegate.STATUS_ROOT_ANIM_DISABLE);
-            }
-        } else {
-            args.putBoolean(FRAGMENTATION_ARG_IS_SHARED_ELEMENT, true);
-            for (TransactionRecord.SharedElement item : sharedElementList) {
-                ft.addSharedElement(item.sharedElement, item.sharedName);
-            }
-        }
-        if (from == null) {
-            ft.replace(args.getInt(FRAGMENTATION_ARG_CONTAINER), toF, toFragmentTag);
-            if (!addMode) {
-                ft.setTransition(FragmentTransaction.TRANSIT_FRAGMENT_OPEN);
-                args.putInt(FRAGMENTATION_ARG_ROOT_STATUS, allowRootFragmentAnim ?
-                        SupportFragmentDelegate.STATUS_ROOT_ANIM_ENABLE : SupportFragmentDelegate.STATUS_ROOT_ANIM_DISABLE);
+                args.putBoolean(FRAGMENTATION_ARG_IS_SHARED_ELEMENT, true);
+                for (TransactionRecord.SharedElement item : sharedElementList) {
+                    ft.addSharedElement(item.sharedElement, item.sharedName);
+                }
             }
-        } else {
-            if (addMode) {
-                ft.add(from.getSupportDelegate().mContainerId, toF, toFragmentTag);
-                if (type != TYPE_ADD_WITHOUT_HIDE && type != TYPE_ADD_RESULT_WITHOUT_HIDE) {
-                    ft.hide(fromF);
+            if (from == null) {
+                ft.replace(args.getInt(FRAGMENTATION_ARG_CONTAINER), toF, toFragmentTag);
+                if (!addMode) {
+                    ft.setTransition(FragmentTransaction.TRANSIT_FRAGMENT_OPEN);
+                    args.putInt(FRAGMENTATION_ARG_ROOT_STATUS, allowRootFragmentAnim ?
+                            SupportFragmentDelegate.STATUS_ROOT_ANIM_ENABLE : SupportFragmentDelegate.STATUS_ROOT_ANIM_DISABLE);
                 }
             } else {
-                ft.replace(from.getSupportDelegate().mContainerId, toF, toFragmentTag);
+                if (addMode) {
+                    ft.add(from.getSupportDelegate().mContainerId, toF, toFragmentTag);
+                    if (type != TYPE_ADD_WITHOUT_HIDE && type != TYPE_ADD_RESULT_WITHOUT_HIDE) {
+                        ft.hide(fromF);
+                    }
+                } else {
+                    ft.replace(from.getSupportDelegate().mContainerId, toF, toFragmentTag);
+                }
             }
-        }
 
-        if (!dontAddToBackStack && type != TYPE_REPLACE_DONT_BACK) {
-            ft.addToBackStack(toFragmentTag);
+            if (!dontAddToBackStack && type != TYPE_REPLACE_DONT_BACK) {
+                ft.addToBackStack(toFragmentTag);
+            }
+            supportCommit(fm, ft);
+        } finally {
+            if (trace) TraceHelper.endSection();
         }
-        supportCommit(fm, ft);
     }
 
     private void doShowHideFragment(FragmentManager fm, ISupportFragment showFragment, ISupportFragment hideFragment) {
         if (showFragment == hideFragment) return;
 
+        attachBeforeReveal(fm, showFragment);
         FragmentTransaction ft = fm.beginTransaction().show((Fragment) showFragment);
 
         if (hideFragment == null) {
@@ -488,6 +711,7 @@ class TransactionDelegate {
     private void supportCommit(FragmentManager fm, FragmentTransaction transaction) {
         handleAfterSaveInStateTransactionException(fm, "commit()");
         transaction.commitAllowingStateLoss();
+        NavigationTimeline.instant("commit", "transaction", null);
     }
 
     private boolean handleLaunchMode(FragmentManager fm, ISupportFragment topFragment, final ISupportFragment to, String toFragmentTag, int launchMode) {
@@ -541,48 +765,69 @@ class TransactionDelegate {
     }
 
     private void doPopTo(final String targetFragmentTag, boolean includeTargetFragment, FragmentManager fm, int popAnim) {
-        handleAfterSaveInStateTransactionException(fm, "popTo()");
+        boolean trace = TraceHelper.isEnabled();
+        if (trace) TraceHelper.beginSection("popTo", targetFragmentTag);
+        try {
+            handleAfterSaveInStateTransactionException(fm, "popTo()");
 
-        Fragment targetFragment = fm.findFragmentByTag(targetFragmentTag);
+            Fragment targetFragment = fm.findFragmentByTag(targetFragmentTag);
 
-        if (targetFragment == null) {
-            Log.e(TAG, "Pop failure! Can't find FragmentTag:" + targetFragmentTag + " in the FragmentManager's Stack.");
-            return;
-        }
+            if (targetFragment == null) {
+                Log.e(TAG, "Pop failure! Can't find FragmentTag:" + targetFragmentTag + " in the FragmentManager's Stack.");
+                return;
+            }
 
-        int flag = 0;
-        if (includeTargetFragment) {
-            flag = FragmentManager.POP_BACK_STACK_INCLUSIVE;
-        }
+            int flag = 0;
+            if (includeTargetFragment) {
+                flag = FragmentManager.POP_BACK_STACK_INCLUSIVE;
+            }
 
-        List<Fragment> willPopFragments = SupportHelper.getWillPopFragments(fm, targetFragmentTag, includeTargetFragment);
-        if (willPopFragments.size() <= 0) return;
+            List<Fragment> willPopFragments = SupportHelper.getWillPopFragments(fm, targetFragmentTag, includeTargetFragment);
+            if (willPopFragments.size() <= 0) return;
 
-        Fragment top = willPopFragments.get(0);
-        mockPopToAnim(top, targetFragmentTag, fm, flag, willPopFragments, popAnim);
+            if (targetFragment instanceof ISupportFragment) {
+                attachBeforeReveal(fm, includeTargetFragment ? SupportHelper.getPreFragment(targetFragment) : (ISupportFragment) targetFragment);
+            }
+
+            Fragment top = willPopFragments.get(0);
+            if (Fragmentation.getDefault().isLowRam()) {
+                // Don't keep the popped view alive in a mock view for the animation.
+                safePopTo(targetFragmentTag, fm, flag, willPopFragments);
+            } else {
+                mockPopToAnim(top, targetFragmentTag, fm, flag, willPopFragments, popAnim);
+            }
+        } finally {
+            if (trace) TraceHelper.endSection();
+        }
     }
 
     private void safePopTo(String fragmentTag, final FragmentManager fm, int flag, List<Fragment> willPopFragments) {
-        mSupport.getSupportDelegate().mPopMultipleNoAnim = true;
+        boolean trace = TraceHelper.isEnabled();
+        if (trace) TraceHelper.beginSection("safePopTo", fragmentTag);
+        try {
+            mSupport.getSupportDelegate().mPopMultipleNoAnim = true;
 
-        FragmentTransaction transaction = fm.beginTransaction()
-                .setTransition(FragmentTransaction.TRANSIT_FRAGMENT_CLOSE);
-        for (Fragment fragment : willPopFragments) {
-            transaction.remove(fragment);
-        }
-        transaction.commitAllowingStateLoss();
+            FragmentTransaction transaction = fm.beginTransaction()
+                    .setTransition(FragmentTransaction.TRANSIT_FRAGMENT_CLOSE);
+            for (Fragment fragment : willPopFragments) {
+                transaction.remove(fragment);
+            }
+            transaction.commitAllowingStateLoss();
 
-        FragmentationMagician.popBackStackAllowingStateLoss(fm, fragmentTag, flag);
-        FragmentationMagician.executePendingTransactionsAllowingStateLoss(fm);
-        mSupport.getSupportDelegate().mPopMultipleNoAnim = false;
+            FragmentationMagician.popBackStackAllowingStateLoss(fm, fragmentTag, flag);
+            FragmentationMagician.executePendingTransactionsAllowingStateLoss(fm);
+            mSupport.getSupportDelegate().mPopMultipleNoAnim = false;
 
-        if (FragmentationMagician.isSupportLessThan25dot4()) {
-            mHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    FragmentationMagician.reorderIndices(fm);
-                }
-            });
+            if (FragmentationMagician.isSupportLessThan25dot4()) {
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        FragmentationMagician.reorderIndices(fm);
+                    }
+                });
+            }
+        } finally {
+            if (trace) TraceHelper.endSection();
         }
     }
 
@@ -605,8 +850,10 @@ class TransactionDelegate {
         safePopTo(targetFragmentTag, fm, flag, willPopFragments);
 
         Animation animation;
+        Animator animator = null;
         if (popAnim == DEFAULT_POPTO_ANIM) {
             animation = fromSupport.getSupportDelegate().getExitAnim();
+            animator = fromSupport.getSupportDelegate().getExitAnimator();
             if (animation == null) {
                 animation = new Animation() {
                 };
@@ -616,9 +863,11 @@ class TransactionDelegate {
             };
         } else {
             animation = AnimationUtils.loadAnimation(mActivity, popAnim);
+            AnimatorDurationScale.scale(animation);
         }
 
-        fromView.startAnimation(animation);
+        startMockAnimation(fromSupport, fromView, animation, animator);
+        NavigationTimeline.complete("popToAnimation", "animation", from, System.nanoTime(), animation.getDuration() * 1000000);
         mHandler.postDelayed(new Runnable() {
             @Override
             public void run() {
@@ -631,7 +880,7 @@ class TransactionDelegate {
         }, animation.getDuration());
     }
 
-    private void mockStartWithPopAnim(final ISupportFragment from, ISupportFragment to, final Animation exitAnim) {
+    private void mockStartWithPopAnim(final ISupportFragment from, ISupportFragment to, final Animation exitAnim, @Nullable final Animator exitAnimator) {
         final Fragment fromF = (Fragment) from;
         final ViewGroup container = findContainerById(fromF, from.getSupportDelegate().mContainerId);
         if (container == null) return;
@@ -645,7 +894,8 @@ class TransactionDelegate {
         to.getSupportDelegate().mEnterAnimListener = new SupportFragmentDelegate.EnterAnimListener() {
             @Override
             public void onEnterAnimStart() {
-                fromView.startAnimation(exitAnim);
+                startMockAnimation(from, fromView, exitAnim, exitAnimator);
+                NavigationTimeline.complete("exitAnimation", "animation", from, System.nanoTime(), exitAnim.getDuration() * 1000000);
 
                 mHandler.postDelayed(new Runnable() {
                     @Override
@@ -661,6 +911,26 @@ class TransactionDelegate {
         };
     }
 
+    /**
+     * @param animator The Animator of a PropertyFragmentAnimator, the animation only carries its duration then.
+     */
+    private void startMockAnimation(ISupportFragment from, View fromView, Animation animation, @Nullable Animator animator) {
+        boolean layerEnabled = from.getSupportDelegate().isTransitionLayerEnabled();
+        if (animator != null) {
+            animator.setTarget(fromView);
+            if (layerEnabled) {
+                HardwareLayerHelper.promote(fromView, animator);
+            }
+            animator.start();
+            return;
+        }
+
+        if (layerEnabled) {
+            HardwareLayerHelper.promote(mHandler, fromView, animation);
+        }
+        fromView.startAnimation(animation);
+    }
+
     @NonNull
     private ViewGroup addMockView(View fromView, ViewGroup container) {
         ViewGroup mock = new ViewGroup(mActivity) {
@@ -696,6 +966,11 @@ class TransactionDelegate {
         return null;
     }
 
+    private static final class RestoreBatch {
+        final Map<Fragment, Boolean> hiddenStates = new LinkedHashMap<>();
+        boolean reorderIndices;
+    }
+
     private void handleAfterSaveInStateTransactionException(FragmentManager fm, String action) {
         boolean stateSaved = FragmentationMagician.isStateSaved(fm);
         if (stateSaved) {
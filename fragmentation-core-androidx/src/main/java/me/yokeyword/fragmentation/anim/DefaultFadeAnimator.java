@@ -0,0 +1,45 @@
+package me.yokeyword.fragmentation.anim;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import me.yokeyword.fragmentation.R;
+
+/**
+ * Cheap fade transition, used when the device drops frames with the app animator.
+ */
+public class DefaultFadeAnimator extends FragmentAnimator implements Parcelable {
+
+    public static final Creator<DefaultFadeAnimator> CREATOR = new Creator<DefaultFadeAnimator>() {
+        @Override
+        public DefaultFadeAnimator createFromParcel(Parcel in) {
+            return new DefaultFadeAnimator(in);
+        }
+
+        @Override
+        public DefaultFadeAnimator[] newArray(int size) {
+            return new DefaultFadeAnimator[size];
+        }
+    };
+
+    public DefaultFadeAnimator() {
+        enter = R.anim.fade_fragment_enter;
+        exit = R.anim.fade_fragment_exit;
+        popEnter = R.anim.fade_fragment_pop_enter;
+        popExit = R.anim.fade_fragment_pop_exit;
+    }
+
+    protected DefaultFadeAnimator(Parcel in) {
+        super(in);
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        super.writeToParcel(dest, flags);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+}
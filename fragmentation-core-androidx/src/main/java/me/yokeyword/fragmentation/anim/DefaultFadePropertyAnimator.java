@@ -0,0 +1,45 @@
+package me.yokeyword.fragmentation.anim;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import me.yokeyword.fragmentation.R;
+
+/**
+ * {@link DefaultFadeAnimator} run by property animators.
+ */
+public class DefaultFadePropertyAnimator extends PropertyFragmentAnimator implements Parcelable {
+
+    public static final Creator<DefaultFadePropertyAnimator> CREATOR = new Creator<DefaultFadePropertyAnimator>() {
+        @Override
+        public DefaultFadePropertyAnimator createFromParcel(Parcel in) {
+            return new DefaultFadePropertyAnimator(in);
+        }
+
+        @Override
+        public DefaultFadePropertyAnimator[] newArray(int size) {
+            return new DefaultFadePropertyAnimator[size];
+        }
+    };
+
+    public DefaultFadePropertyAnimator() {
+        enter = R.animator.fade_fragment_enter;
+        exit = R.animator.fade_fragment_exit;
+        popEnter = R.animator.fade_fragment_pop_enter;
+        popExit = R.animator.fade_fragment_pop_exit;
+    }
+
+    protected DefaultFadePropertyAnimator(Parcel in) {
+        super(in);
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        super.writeToParcel(dest, flags);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+}
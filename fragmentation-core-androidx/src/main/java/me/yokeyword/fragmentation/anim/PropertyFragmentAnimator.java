@@ -0,0 +1,49 @@
+package me.yokeyword.fragmentation.anim;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Fragment动画实体类, 属性动画版本
+ * <p>
+ * The resources are {@link androidx.annotation.AnimatorRes}(&lt;objectAnimator&gt;/&lt;set&gt; in res/animator),
+ * run by {@link androidx.fragment.app.Fragment#onCreateAnimator(int, boolean, int)} instead of
+ * onCreateAnimation(), so they don't depend on the View being redrawn by the UI thread each frame.
+ * A Fragment not extending SupportFragment must forward onCreateAnimator(), see {@link me.yokeyword.fragmentation.ISupportFragment}.
+ * <p>
+ * Animate the view properties only(alpha, translationX/Y, scaleX/Y, rotation), the exiting view is
+ * restored when its animator ends.
+ */
+public class PropertyFragmentAnimator extends FragmentAnimator implements Parcelable {
+    public static final Creator<PropertyFragmentAnimator> CREATOR = new Creator<PropertyFragmentAnimator>() {
+        @Override
+        public PropertyFragmentAnimator createFromParcel(Parcel in) {
+            return new PropertyFragmentAnimator(in);
+        }
+
+        @Override
+        public PropertyFragmentAnimator[] newArray(int size) {
+            return new PropertyFragmentAnimator[size];
+        }
+    };
+
+    public PropertyFragmentAnimator() {
+    }
+
+    public PropertyFragmentAnimator(int enter, int exit) {
+        super(enter, exit);
+    }
+
+    public PropertyFragmentAnimator(int enter, int exit, int popEnter, int popExit) {
+        super(enter, exit, popEnter, popExit);
+    }
+
+    protected PropertyFragmentAnimator(Parcel in) {
+        super(in);
+    }
+
+    @Override
+    public FragmentAnimator copy() {
+        return new PropertyFragmentAnimator(getEnter(), getExit(), getPopEnter(), getPopExit());
+    }
+}
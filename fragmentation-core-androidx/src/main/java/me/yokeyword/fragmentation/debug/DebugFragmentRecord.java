@@ -2,6 +2,8 @@ package me.yokeyword.fragmentation.debug;
 
 import java.util.List;
 
+import androidx.fragment.app.Fragment;
+
 /**
  * 为了调试时 查看栈视图
  * Created by YoKeyword on 16/2/21.
@@ -9,9 +11,20 @@ import java.util.List;
 public class DebugFragmentRecord {
     public CharSequence fragmentName;
     public List<DebugFragmentRecord> childFragmentRecord;
+    /**
+     * View count, creation/inflation/lazy-init time, retained bitmaps... null if unavailable.
+     */
+    public CharSequence perfInfo;
+    // The live model refreshes the record from it
+    Fragment fragment;
 
     public DebugFragmentRecord(CharSequence fragmentName, List<DebugFragmentRecord> childFragmentRecord) {
         this.fragmentName = fragmentName;
         this.childFragmentRecord = childFragmentRecord;
     }
+
+    public DebugFragmentRecord(CharSequence fragmentName, List<DebugFragmentRecord> childFragmentRecord, CharSequence perfInfo) {
+        this(fragmentName, childFragmentRecord);
+        this.perfInfo = perfInfo;
+    }
 }
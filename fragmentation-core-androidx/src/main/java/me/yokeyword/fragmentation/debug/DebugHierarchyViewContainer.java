@@ -3,6 +3,10 @@ package me.yokeyword.fragmentation.debug;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Color;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.RelativeSizeSpan;
 import android.util.AttributeSet;
 import android.view.Gravity;
 import android.view.View;
@@ -142,7 +146,7 @@ public class DebugHierarchyViewContainer extends ScrollView {
                     }
                 });
             } else {
-                childTvItem.setPadding(childTvItem.getPaddingLeft() + mPadding, 0, mPadding, 0);
+                childTvItem.setPadding(childTvItem.getPaddingLeft() + mPadding, childTvItem.getPaddingTop(), mPadding, childTvItem.getPaddingBottom());
             }
 
             if (tvItem == null) {
@@ -171,22 +175,40 @@ public class DebugHierarchyViewContainer extends ScrollView {
     private TextView getTextView(DebugFragmentRecord fragmentRecord, int hierarchy) {
         TextView tvItem = new TextView(mContext);
 
-        ViewGroup.LayoutParams params = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, mItemHeight);
+        boolean hasPerfInfo = fragmentRecord.perfInfo != null;
+        ViewGroup.LayoutParams params = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                hasPerfInfo ? ViewGroup.LayoutParams.WRAP_CONTENT : mItemHeight);
         tvItem.setLayoutParams(params);
+        tvItem.setMinHeight(mItemHeight);
         if (hierarchy == 0) {
             tvItem.setTextColor(Color.parseColor("#333333"));
             tvItem.setTextSize(16);
         }
         tvItem.setGravity(Gravity.CENTER_VERTICAL);
-        tvItem.setPadding((int) (mPadding + hierarchy * mPadding * 1.5), 0, mPadding, 0);
+        int verticalPadding = hasPerfInfo ? mPadding / 4 : 0;
+        tvItem.setPadding((int) (mPadding + hierarchy * mPadding * 1.5), verticalPadding, mPadding, verticalPadding);
         tvItem.setCompoundDrawablePadding(mPadding / 2);
 
         TypedArray a = mContext.obtainStyledAttributes(new int[]{android.R.attr.selectableItemBackground});
         tvItem.setBackgroundDrawable(a.getDrawable(0));
         a.recycle();
 
-        tvItem.setText(fragmentRecord.fragmentName);
+        if (hasPerfInfo) {
+            tvItem.setText(withPerfInfo(fragmentRecord));
+        } else {
+            tvItem.setText(fragmentRecord.fragmentName);
+        }
 
         return tvItem;
     }
+
+    private CharSequence withPerfInfo(DebugFragmentRecord fragmentRecord) {
+        SpannableStringBuilder ssb = new SpannableStringBuilder(fragmentRecord.fragmentName);
+        ssb.append('\n');
+        int start = ssb.length();
+        ssb.append(fragmentRecord.perfInfo);
+        ssb.setSpan(new RelativeSizeSpan(0.75f), start, ssb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        ssb.setSpan(new ForegroundColorSpan(Color.parseColor("#888888")), start, ssb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        return ssb;
+    }
 }
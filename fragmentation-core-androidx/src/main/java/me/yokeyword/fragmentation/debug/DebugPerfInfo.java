@@ -0,0 +1,107 @@
+package me.yokeyword.fragmentation.debug;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import androidx.fragment.app.Fragment;
+import me.yokeyword.fragmentation.ISupportFragment;
+import me.yokeyword.fragmentation.helper.LifecycleProfiler;
+import me.yokeyword.fragmentation.helper.internal.LifecycleTimer;
+
+/**
+ * 栈视图的性能信息: View数量, 创建/inflate/懒加载耗时, 是否隐藏但仍RESUMED, Bitmap内存估算
+ * <p>
+ * The view hierarchy walk is cached until {@link #invalidate()}, the rest is cheap and read on each call.
+ */
+final class DebugPerfInfo {
+    private boolean mViewStatsValid;
+    private int mViewCount;
+    private long mBitmapBytes;
+
+    void invalidate() {
+        mViewStatsValid = false;
+    }
+
+    CharSequence describe(Fragment fragment) {
+        StringBuilder sb = new StringBuilder();
+
+        View view = fragment.getView();
+        if (view != null) {
+            if (!mViewStatsValid) {
+                Map<Bitmap, Boolean> bitmaps = new IdentityHashMap<>();
+                mViewCount = countViews(view, bitmaps);
+                mBitmapBytes = 0;
+                for (Bitmap bitmap : bitmaps.keySet()) {
+                    mBitmapBytes += bitmapBytes(bitmap);
+                }
+                mViewStatsValid = true;
+            }
+            sb.append("views:").append(mViewCount);
+            if (mBitmapBytes > 0) {
+                sb.append("  bitmaps:").append(String.format(Locale.US, "%.1fMB", mBitmapBytes / 1024f / 1024f));
+            }
+        } else {
+            sb.append("no view");
+        }
+
+        if (fragment instanceof ISupportFragment) {
+            LifecycleTimer timer = ((ISupportFragment) fragment).getSupportDelegate().getLifecycleTimer();
+            if (timer != null) {
+                appendDuration(sb, "create", timer.getLastDuration(LifecycleProfiler.PHASE_CREATE));
+                appendDuration(sb, "inflate", timer.getLastDuration(LifecycleProfiler.PHASE_CREATE_VIEW));
+                appendDuration(sb, "lazy", timer.getLastDuration(LifecycleProfiler.PHASE_LAZY_INIT));
+            }
+        }
+
+        if (fragment.isHidden() && fragment.isResumed()) {
+            sb.append("  [hidden but RESUMED]");
+        }
+        return sb.toString();
+    }
+
+    private static void appendDuration(StringBuilder sb, String name, long nanos) {
+        if (nanos < 0) return;
+        sb.append("  ").append(name).append(':').append(String.format(Locale.US, "%.1fms", nanos / 1e6));
+    }
+
+    private static int countViews(View view, Map<Bitmap, Boolean> bitmaps) {
+        collectBitmap(view.getBackground(), bitmaps);
+        if (view instanceof ImageView) {
+            collectBitmap(((ImageView) view).getDrawable(), bitmaps);
+        }
+
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += countViews(group.getChildAt(i), bitmaps);
+            }
+        }
+        return count;
+    }
+
+    private static void collectBitmap(Drawable drawable, Map<Bitmap, Boolean> bitmaps) {
+        if (drawable instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+            if (bitmap != null && !bitmap.isRecycled()) {
+                bitmaps.put(bitmap, Boolean.TRUE);
+            }
+        }
+    }
+
+    private static long bitmapBytes(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+}
@@ -15,15 +15,10 @@ import android.view.ViewGroup;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
 
-import java.util.ArrayList;
 import java.util.List;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
-import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
-import androidx.fragment.app.FragmentManager;
-import androidx.fragment.app.FragmentationMagician;
 import me.yokeyword.fragmentation.Fragmentation;
 import me.yokeyword.fragmentation.R;
 
@@ -32,12 +27,17 @@ import me.yokeyword.fragmentation.R;
  */
 
 public class DebugStackDelegate implements SensorEventListener {
+    // Logcat truncates longer messages
+    private static final int MAX_LOG_CHUNK = 3000;
+
     private FragmentActivity mActivity;
     private SensorManager mSensorManager;
     private AlertDialog mStackDialog;
+    private DebugStackModel mStackModel;
 
     public DebugStackDelegate(FragmentActivity activity) {
         this.mActivity = activity;
+        this.mStackModel = new DebugStackModel(activity.getSupportFragmentManager());
     }
 
     public void onCreate(int mode) {
@@ -77,6 +77,7 @@ public class DebugStackDelegate implements SensorEventListener {
         if (mSensorManager != null) {
             mSensorManager.unregisterListener(this);
         }
+        mStackModel.unregister();
     }
 
     @Override
@@ -101,7 +102,7 @@ public class DebugStackDelegate implements SensorEventListener {
     public void showFragmentStackHierarchyView() {
         if (mStackDialog != null && mStackDialog.isShowing()) return;
         DebugHierarchyViewContainer container = new DebugHierarchyViewContainer(mActivity);
-        container.bindFragmentRecords(getFragmentRecords());
+        container.bindFragmentRecords(mStackModel.getFragmentRecords());
         container.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
         mStackDialog = new AlertDialog.Builder(mActivity)
                 .setView(container)
@@ -115,7 +116,7 @@ public class DebugStackDelegate implements SensorEventListener {
      * 调试相关:以log形式 打印 栈视图
      */
     public void logFragmentRecords(String tag) {
-        List<DebugFragmentRecord> fragmentRecordList = getFragmentRecords();
+        List<DebugFragmentRecord> fragmentRecordList = mStackModel.getFragmentRecords();
         if (fragmentRecordList == null) return;
 
         StringBuilder sb = new StringBuilder();
@@ -133,7 +134,7 @@ public class DebugStackDelegate implements SensorEventListener {
                 }
             } else if (i == 0) {
                 sb.append("\t栈底\t\t\t").append(fragmentRecord.fragmentName).append("\n\n");
-                processChildLog(fragmentRecord.childFragmentRecord, sb, 1);
+                processChildLog(tag, fragmentRecord.childFragmentRecord, sb, 1);
                 sb.append("═══════════════════════════════════════════════════════════════════════════════════");
                 Log.i(tag, sb.toString());
                 return;
@@ -141,24 +142,18 @@ public class DebugStackDelegate implements SensorEventListener {
                 sb.append("\t↓\t\t\t").append(fragmentRecord.fragmentName).append("\n\n");
             }
 
-            processChildLog(fragmentRecord.childFragmentRecord, sb, 1);
+            processChildLog(tag, fragmentRecord.childFragmentRecord, sb, 1);
+            flushLog(tag, sb);
         }
     }
 
-    private List<DebugFragmentRecord> getFragmentRecords() {
-        List<DebugFragmentRecord> fragmentRecordList = new ArrayList<>();
-
-        List<Fragment> fragmentList = FragmentationMagician.getActiveFragments(mActivity.getSupportFragmentManager());
-
-        if (fragmentList == null || fragmentList.size() < 1) return null;
-
-        for (Fragment fragment : fragmentList) {
-            addDebugFragmentRecord(fragmentRecordList, fragment);
-        }
-        return fragmentRecordList;
+    private void flushLog(String tag, StringBuilder sb) {
+        if (sb.length() < MAX_LOG_CHUNK) return;
+        Log.i(tag, sb.toString());
+        sb.setLength(0);
     }
 
-    private void processChildLog(List<DebugFragmentRecord> fragmentRecordList, StringBuilder sb, int childHierarchy) {
+    private void processChildLog(String tag, List<DebugFragmentRecord> fragmentRecordList, StringBuilder sb, int childHierarchy) {
         if (fragmentRecordList == null || fragmentRecordList.size() == 0) return;
 
         for (int j = 0; j < fragmentRecordList.size(); j++) {
@@ -170,55 +165,15 @@ public class DebugStackDelegate implements SensorEventListener {
                 sb.append("\t子栈顶\t\t").append(childFragmentRecord.fragmentName).append("\n\n");
             } else if (j == fragmentRecordList.size() - 1) {
                 sb.append("\t子栈底\t\t").append(childFragmentRecord.fragmentName).append("\n\n");
-                processChildLog(childFragmentRecord.childFragmentRecord, sb, ++childHierarchy);
+                processChildLog(tag, childFragmentRecord.childFragmentRecord, sb, ++childHierarchy);
                 return;
             } else {
                 sb.append("\t↓\t\t\t").append(childFragmentRecord.fragmentName).append("\n\n");
             }
 
-            processChildLog(childFragmentRecord.childFragmentRecord, sb, childHierarchy);
-        }
-    }
-
-    private List<DebugFragmentRecord> getChildFragmentRecords(Fragment parentFragment) {
-        List<DebugFragmentRecord> fragmentRecords = new ArrayList<>();
-
-        List<Fragment> fragmentList = FragmentationMagician.getActiveFragments(parentFragment.getChildFragmentManager());
-        if (fragmentList == null || fragmentList.size() < 1) return null;
-
-        for (int i = fragmentList.size() - 1; i >= 0; i--) {
-            Fragment fragment = fragmentList.get(i);
-            addDebugFragmentRecord(fragmentRecords, fragment);
+            processChildLog(tag, childFragmentRecord.childFragmentRecord, sb, childHierarchy);
+            flushLog(tag, sb);
         }
-        return fragmentRecords;
-    }
-
-    private void addDebugFragmentRecord(List<DebugFragmentRecord> fragmentRecords, Fragment fragment) {
-        if (fragment != null) {
-            int backStackCount = fragment.getFragmentManager().getBackStackEntryCount();
-            CharSequence name = fragment.getClass().getSimpleName();
-            if (backStackCount == 0) {
-                name = span(name);
-            } else {
-                for (int j = 0; j < backStackCount; j++) {
-                    FragmentManager.BackStackEntry entry = fragment.getFragmentManager().getBackStackEntryAt(j);
-                    if ((entry.getName() != null && entry.getName().equals(fragment.getTag()))
-                            || (entry.getName() == null && fragment.getTag() == null)) {
-                        break;
-                    }
-                    if (j == backStackCount - 1) {
-                        name = span(name);
-                    }
-                }
-            }
-            fragmentRecords.add(new DebugFragmentRecord(name, getChildFragmentRecords(fragment)));
-        }
-    }
-
-    @NonNull
-    private CharSequence span(CharSequence name) {
-        name = name + " *";
-        return name;
     }
 
     private class StackViewTouchListener implements View.OnTouchListener {
@@ -0,0 +1,180 @@
+package me.yokeyword.fragmentation.debug;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentationMagician;
+
+/**
+ * Live model of the fragment stack, kept up to date by the fragment lifecycle callbacks.
+ * <p>
+ * Only the FragmentManagers touched since the last read (and their ancestors) are rebuilt,
+ * the records of the untouched subtrees are reused.
+ */
+class DebugStackModel extends FragmentManager.FragmentLifecycleCallbacks {
+    private final FragmentManager mRootFragmentManager;
+
+    private final Map<FragmentManager, List<DebugFragmentRecord>> mRecords = new IdentityHashMap<>();
+    private final Map<FragmentManager, Boolean> mDirtyFragmentManagers = new IdentityHashMap<>();
+    private final Map<FragmentManager, Boolean> mObservedFragmentManagers = new IdentityHashMap<>();
+    private final Map<Fragment, DebugPerfInfo> mPerfInfos = new IdentityHashMap<>();
+    private boolean mRegistered;
+
+    DebugStackModel(FragmentManager rootFragmentManager) {
+        this.mRootFragmentManager = rootFragmentManager;
+    }
+
+    void register() {
+        if (mRegistered) return;
+        mRegistered = true;
+        mRootFragmentManager.registerFragmentLifecycleCallbacks(this, true);
+    }
+
+    void unregister() {
+        if (!mRegistered) return;
+        mRegistered = false;
+        mRootFragmentManager.unregisterFragmentLifecycleCallbacks(this);
+        mRecords.clear();
+        mDirtyFragmentManagers.clear();
+        mPerfInfos.clear();
+    }
+
+    /**
+     * @return The records of the root FragmentManager, null if there is no fragment.
+     */
+    @Nullable
+    List<DebugFragmentRecord> getFragmentRecords() {
+        register();
+        return getRecords(mRootFragmentManager, false);
+    }
+
+    @Nullable
+    private List<DebugFragmentRecord> getRecords(FragmentManager fm, boolean reverse) {
+        observeBackStack(fm);
+
+        if (mRecords.containsKey(fm) && !mDirtyFragmentManagers.containsKey(fm)) {
+            List<DebugFragmentRecord> records = mRecords.get(fm);
+            refreshRecords(records);
+            return records;
+        }
+        mDirtyFragmentManagers.remove(fm);
+
+        List<DebugFragmentRecord> records = null;
+        List<Fragment> fragmentList = FragmentationMagician.getActiveFragments(fm);
+        if (fragmentList != null && fragmentList.size() > 0) {
+            records = new ArrayList<>();
+            for (int i = 0; i < fragmentList.size(); i++) {
+                Fragment fragment = fragmentList.get(reverse ? fragmentList.size() - 1 - i : i);
+                if (fragment == null) continue;
+                DebugFragmentRecord record = new DebugFragmentRecord(getName(fm, fragment),
+                        getRecords(fragment.getChildFragmentManager(), true), getPerfInfo(fragment).describe(fragment));
+                record.fragment = fragment;
+                records.add(record);
+            }
+        }
+        mRecords.put(fm, records);
+        return records;
+    }
+
+    private void refreshRecords(List<DebugFragmentRecord> records) {
+        if (records == null) return;
+        for (DebugFragmentRecord record : records) {
+            if (record.fragment == null) continue;
+            record.perfInfo = getPerfInfo(record.fragment).describe(record.fragment);
+            // Clean records are reused, only the dirty child FragmentManagers are rebuilt
+            record.childFragmentRecord = getRecords(record.fragment.getChildFragmentManager(), true);
+        }
+    }
+
+    private CharSequence getName(FragmentManager fm, Fragment fragment) {
+        int backStackCount = fm.getBackStackEntryCount();
+        CharSequence name = fragment.getClass().getSimpleName();
+        if (backStackCount == 0) {
+            return name + " *";
+        }
+        for (int j = 0; j < backStackCount; j++) {
+            FragmentManager.BackStackEntry entry = fm.getBackStackEntryAt(j);
+            if ((entry.getName() != null && entry.getName().equals(fragment.getTag()))
+                    || (entry.getName() == null && fragment.getTag() == null)) {
+                return name;
+            }
+        }
+        return name + " *";
+    }
+
+    private DebugPerfInfo getPerfInfo(Fragment fragment) {
+        DebugPerfInfo perfInfo = mPerfInfos.get(fragment);
+        if (perfInfo == null) {
+            perfInfo = new DebugPerfInfo();
+            mPerfInfos.put(fragment, perfInfo);
+        }
+        return perfInfo;
+    }
+
+    private void observeBackStack(final FragmentManager fm) {
+        if (mObservedFragmentManagers.containsKey(fm)) return;
+        mObservedFragmentManagers.put(fm, Boolean.TRUE);
+        fm.addOnBackStackChangedListener(new FragmentManager.OnBackStackChangedListener() {
+            @Override
+            public void onBackStackChanged() {
+                if (mRegistered) markDirty(fm);
+            }
+        });
+    }
+
+    private void markDirty(FragmentManager fm) {
+        mDirtyFragmentManagers.put(fm, Boolean.TRUE);
+    }
+
+    private void invalidatePerfInfo(Fragment fragment) {
+        DebugPerfInfo perfInfo = mPerfInfos.get(fragment);
+        if (perfInfo != null) {
+            perfInfo.invalidate();
+        }
+    }
+
+    @Override
+    public void onFragmentAttached(@NonNull FragmentManager fm, @NonNull Fragment f, @NonNull Context context) {
+        markDirty(fm);
+    }
+
+    @Override
+    public void onFragmentViewCreated(@NonNull FragmentManager fm, @NonNull Fragment f, @NonNull View v, @Nullable Bundle savedInstanceState) {
+        invalidatePerfInfo(f);
+    }
+
+    @Override
+    public void onFragmentResumed(@NonNull FragmentManager fm, @NonNull Fragment f) {
+        invalidatePerfInfo(f);
+    }
+
+    @Override
+    public void onFragmentViewDestroyed(@NonNull FragmentManager fm, @NonNull Fragment f) {
+        invalidatePerfInfo(f);
+    }
+
+    @Override
+    public void onFragmentDestroyed(@NonNull FragmentManager fm, @NonNull Fragment f) {
+        markDirty(fm);
+        FragmentManager childFm = f.getChildFragmentManager();
+        mRecords.remove(childFm);
+        mDirtyFragmentManagers.remove(childFm);
+        mObservedFragmentManagers.remove(childFm);
+    }
+
+    @Override
+    public void onFragmentDetached(@NonNull FragmentManager fm, @NonNull Fragment f) {
+        markDirty(fm);
+        mPerfInfos.remove(f);
+    }
+}
@@ -0,0 +1,22 @@
+package me.yokeyword.fragmentation.exception;
+
+import android.util.Log;
+
+/**
+ * An action(and the Fragment lifecycle it triggered synchronously) blocked the main thread
+ * longer than the budget set by {@link me.yokeyword.fragmentation.Fragmentation.FragmentationBuilder#actionBudget(long)}.
+ * <p>
+ * The stack trace is the main thread's stack sampled when the budget ran out, if available.
+ */
+public class ActionBudgetExceededWarning extends RuntimeException {
+
+    public ActionBudgetExceededWarning(String action, Class<?> from, Class<?> to, long elapsed, long budget) {
+        super("Warning: The " + action + " action from " + simpleName(from) + " to " + simpleName(to)
+                + " took " + elapsed + "ms on the main thread, over the budget of " + budget + "ms!");
+        Log.w("Fragmentation", getMessage());
+    }
+
+    private static String simpleName(Class<?> clazz) {
+        return clazz == null ? "?" : clazz.getSimpleName();
+    }
+}
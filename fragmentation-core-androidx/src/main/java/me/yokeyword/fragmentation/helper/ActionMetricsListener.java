@@ -0,0 +1,14 @@
+package me.yokeyword.fragmentation.helper;
+
+
+import androidx.annotation.NonNull;
+import me.yokeyword.fragmentation.queue.ActionMetrics;
+
+/**
+ * Receive the latency of each action performed by the ActionQueue.
+ * <p>
+ * Called on the main thread.
+ */
+public interface ActionMetricsListener {
+    void onActionMetrics(@NonNull ActionMetrics metrics);
+}
@@ -0,0 +1,91 @@
+package me.yokeyword.fragmentation.helper;
+
+import java.util.Locale;
+
+/**
+ * Histogram of one lifecycle phase of one Fragment class.
+ * <p>
+ * Durations are counted in power-of-two millisecond buckets: [0,1), [1,2), [2,4) ... [2048,+∞).
+ *
+ * @see LifecycleProfiler
+ */
+public final class LifecycleHistogram {
+    static final int BUCKET_COUNT = 13;
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count;
+    private long sumNanos;
+    private long minNanos = Long.MAX_VALUE;
+    private long maxNanos;
+
+    LifecycleHistogram() {
+    }
+
+    LifecycleHistogram(LifecycleHistogram source) {
+        System.arraycopy(source.buckets, 0, buckets, 0, BUCKET_COUNT);
+        count = source.count;
+        sumNanos = source.sumNanos;
+        minNanos = source.minNanos;
+        maxNanos = source.maxNanos;
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) return;
+        long millis = nanos / 1000000;
+        int bucket = 0;
+        while (bucket < BUCKET_COUNT - 1 && millis >= (1L << bucket)) {
+            bucket++;
+        }
+        buckets[bucket]++;
+        count++;
+        sumNanos += nanos;
+        minNanos = Math.min(minNanos, nanos);
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMillis() {
+        return count == 0 ? 0 : sumNanos / 1e6 / count;
+    }
+
+    public double getMinMillis() {
+        return count == 0 ? 0 : minNanos / 1e6;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos / 1e6;
+    }
+
+    /**
+     * @param percentile 0~100
+     * @return The upper bound of the bucket which the percentile falls in, capped by the max.
+     */
+    public double getPercentileMillis(double percentile) {
+        if (count == 0) return 0;
+        long target = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= target && i < BUCKET_COUNT - 1) {
+                return Math.min(1L << i, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * @return The count of each bucket.
+     */
+    public long[] getBuckets() {
+        return buckets.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "n=%d mean=%.1fms p50<=%.0fms p90<=%.0fms max=%.1fms",
+                count, getMeanMillis(), getPercentileMillis(50), getPercentileMillis(90), getMaxMillis());
+    }
+}
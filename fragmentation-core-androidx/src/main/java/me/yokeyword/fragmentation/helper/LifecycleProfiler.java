@@ -0,0 +1,121 @@
+package me.yokeyword.fragmentation.helper;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wall time of each lifecycle phase of the SupportFragments, aggregated per Fragment class.
+ * <p>
+ * Only recorded when {@link me.yokeyword.fragmentation.Fragmentation.FragmentationBuilder#profileLifecycle(boolean)} is true.
+ */
+public final class LifecycleProfiler {
+    /**
+     * onAttach() -> the end of onCreate().
+     */
+    public static final int PHASE_CREATE = 0;
+    /**
+     * The end of onCreate() -> onActivityCreated(), mainly onCreateView()(inflation) and onViewCreated().
+     */
+    public static final int PHASE_CREATE_VIEW = 1;
+    /**
+     * onActivityCreated().
+     */
+    public static final int PHASE_ACTIVITY_CREATED = 2;
+    /**
+     * onAttach() -> the first onSupportVisible().
+     */
+    public static final int PHASE_FIRST_VISIBLE = 3;
+    /**
+     * onLazyInitView().
+     */
+    public static final int PHASE_LAZY_INIT = 4;
+    /**
+     * onAttach() -> onEnterAnimationEnd(), the "time to interactive" of the screen.
+     */
+    public static final int PHASE_ENTER_ANIMATION_END = 5;
+    public static final int PHASE_COUNT = 6;
+
+    private static final String[] PHASE_NAMES = {
+            "create", "createView", "activityCreated", "firstVisible", "lazyInit", "enterAnimationEnd"
+    };
+
+    private static final Map<String, LifecycleHistogram[]> sHistograms = new HashMap<>();
+
+    private LifecycleProfiler() {
+    }
+
+    public static String phaseName(int phase) {
+        return PHASE_NAMES[phase];
+    }
+
+    /**
+     * @hide Called by the delegates.
+     */
+    public static void record(Class<?> fragmentClass, int phase, long nanos) {
+        synchronized (sHistograms) {
+            LifecycleHistogram[] histograms = sHistograms.get(fragmentClass.getName());
+            if (histograms == null) {
+                histograms = new LifecycleHistogram[PHASE_COUNT];
+                for (int i = 0; i < PHASE_COUNT; i++) {
+                    histograms[i] = new LifecycleHistogram();
+                }
+                sHistograms.put(fragmentClass.getName(), histograms);
+            }
+            histograms[phase].record(nanos);
+        }
+    }
+
+    /**
+     * @return A copy of the histogram, null if the Fragment class has not been recorded.
+     */
+    public static LifecycleHistogram getHistogram(Class<?> fragmentClass, int phase) {
+        synchronized (sHistograms) {
+            LifecycleHistogram[] histograms = sHistograms.get(fragmentClass.getName());
+            return histograms == null ? null : new LifecycleHistogram(histograms[phase]);
+        }
+    }
+
+    /**
+     * @return The names of the recorded Fragment classes.
+     */
+    public static List<String> getFragmentClassNames() {
+        synchronized (sHistograms) {
+            return new ArrayList<>(sHistograms.keySet());
+        }
+    }
+
+    public static void reset() {
+        synchronized (sHistograms) {
+            sHistograms.clear();
+        }
+    }
+
+    /**
+     * Dump all the histograms.
+     */
+    public static String dump() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (sHistograms) {
+            for (Map.Entry<String, LifecycleHistogram[]> entry : sHistograms.entrySet()) {
+                sb.append(entry.getKey()).append('\n');
+                LifecycleHistogram[] histograms = entry.getValue();
+                for (int i = 0; i < PHASE_COUNT; i++) {
+                    if (histograms[i].getCount() == 0) continue;
+                    sb.append("\t").append(PHASE_NAMES[i]).append(":\t").append(histograms[i]).append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Dump all the histograms to the log.
+     */
+    public static void dump(String tag) {
+        Log.i(tag, dump());
+    }
+}
@@ -0,0 +1,19 @@
+package me.yokeyword.fragmentation.helper;
+
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+
+/**
+ * The layouts inflated ahead of time for the predicted next Fragments, the Fragment gets the view by
+ * {@link me.yokeyword.fragmentation.SupportFragmentDelegate#takePreparedView()}.
+ * <p>
+ * Called on the main thread.
+ */
+public interface PrewarmLayoutProvider {
+    /**
+     * @return 0 if the Fragment class shouldn't be inflated ahead of time.
+     */
+    @LayoutRes
+    int getPrewarmLayout(@NonNull Class<?> fragmentClass);
+}
@@ -0,0 +1,82 @@
+package me.yokeyword.fragmentation.helper.internal;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Settings;
+import android.view.animation.Animation;
+
+/**
+ * @Hide The system "Animator duration scale" of the developer options/accessibility settings.
+ * <p>
+ * The value is cached, and updated by a ContentObserver when the setting changes.
+ */
+public final class AnimatorDurationScale {
+    private static volatile float sScale = 1f;
+    private static boolean sObserving;
+
+    private AnimatorDurationScale() {
+    }
+
+    /**
+     * Starts following the setting, the first call reads it.
+     */
+    public static synchronized void init(Context context) {
+        if (sObserving) return;
+        sObserving = true;
+
+        final ContentResolver resolver = context.getApplicationContext().getContentResolver();
+        sScale = read(resolver);
+        resolver.registerContentObserver(getUri(), false, new ContentObserver(new Handler(Looper.getMainLooper())) {
+            @Override
+            public void onChange(boolean selfChange) {
+                sScale = read(resolver);
+            }
+        });
+    }
+
+    /**
+     * @return 0 if the animations are disabled, 1 by default.
+     */
+    public static float get() {
+        return sScale;
+    }
+
+    public static long scale(long duration) {
+        return (long) (duration * sScale);
+    }
+
+    /**
+     * Scales a freshly loaded animation, the animation must not be scaled twice.
+     */
+    public static void scale(Animation animation) {
+        float scale = sScale;
+        if (scale != 1f) {
+            animation.scaleCurrentDuration(scale);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Uri getUri() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return Settings.Global.getUriFor(Settings.Global.ANIMATOR_DURATION_SCALE);
+        }
+        return Settings.System.getUriFor(Settings.System.ANIMATOR_DURATION_SCALE);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static float read(ContentResolver resolver) {
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+                return Settings.Global.getFloat(resolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+            }
+            return Settings.System.getFloat(resolver, Settings.System.ANIMATOR_DURATION_SCALE, 1f);
+        } catch (Exception e) {
+            return 1f;
+        }
+    }
+}
@@ -1,36 +1,120 @@
 package me.yokeyword.fragmentation.helper.internal;
 
+import android.animation.Animator;
+import android.animation.AnimatorInflater;
+import android.animation.AnimatorSet;
 import android.content.Context;
+import android.os.Build;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import me.yokeyword.fragmentation.Fragmentation;
 import me.yokeyword.fragmentation.R;
+import me.yokeyword.fragmentation.anim.DefaultNoAnimator;
 import me.yokeyword.fragmentation.anim.FragmentAnimator;
+import me.yokeyword.fragmentation.anim.PropertyFragmentAnimator;
 
 /**
  * @Hide Created by YoKeyword on 16/7/26.
  */
 public final class AnimatorHelper {
-    public Animation enterAnim, exitAnim, popEnterAnim, popExitAnim;
+    private Animation enterAnim, exitAnim, popEnterAnim, popExitAnim;
+    // PropertyFragmentAnimator: the Animations above only carry the durations of these
+    private Animator enterAnimator, exitAnimator, popEnterAnimator, popExitAnimator;
     private Animation noneAnim, noneAnimFixed;
     private Context context;
     private FragmentAnimator fragmentAnimator;
+    private boolean noAnim;
+    private boolean lazy;
+    private float scale;
 
     public AnimatorHelper(Context context, FragmentAnimator fragmentAnimator) {
+        this(context, fragmentAnimator, false);
+    }
+
+    /**
+     * @param noAnim Ignore the FragmentAnimator, as {@link DefaultNoAnimator}.
+     */
+    public AnimatorHelper(Context context, FragmentAnimator fragmentAnimator, boolean noAnim) {
         this.context = context;
+        this.noAnim = noAnim;
+        // The low-RAM profile loads each animation when it's first used.
+        this.lazy = Fragmentation.getDefault().isLowRam();
         notifyChanged(fragmentAnimator);
     }
 
     public void notifyChanged(FragmentAnimator fragmentAnimator) {
-        this.fragmentAnimator = fragmentAnimator;
+        this.fragmentAnimator = noAnim ? new DefaultNoAnimator() : fragmentAnimator;
+        this.scale = AnimatorDurationScale.get();
+        enterAnimator = exitAnimator = popEnterAnimator = popExitAnimator = null;
+        if (lazy) {
+            enterAnim = exitAnim = popEnterAnim = popExitAnim = null;
+            return;
+        }
         initEnterAnim();
         initExitAnim();
         initPopEnterAnim();
         initPopExitAnim();
     }
 
+    public Animation getEnterAnim() {
+        return enterAnim != null ? enterAnim : initEnterAnim();
+    }
+
+    public Animation getExitAnim() {
+        return exitAnim != null ? exitAnim : initExitAnim();
+    }
+
+    public Animation getPopEnterAnim() {
+        return popEnterAnim != null ? popEnterAnim : initPopEnterAnim();
+    }
+
+    public Animation getPopExitAnim() {
+        return popExitAnim != null ? popExitAnim : initPopExitAnim();
+    }
+
+    public boolean isPropertyAnimator() {
+        return fragmentAnimator instanceof PropertyFragmentAnimator;
+    }
+
+    /**
+     * @return A new Animator to run, null if it's not a {@link PropertyFragmentAnimator} or the animation is none.
+     */
+    @Nullable
+    public Animator getEnterAnimator() {
+        getEnterAnim();
+        return enterAnimator != null ? enterAnimator.clone() : null;
+    }
+
+    @Nullable
+    public Animator getExitAnimator() {
+        getExitAnim();
+        return exitAnimator != null ? exitAnimator.clone() : null;
+    }
+
+    @Nullable
+    public Animator getPopEnterAnimator() {
+        getPopEnterAnim();
+        return popEnterAnimator != null ? popEnterAnimator.clone() : null;
+    }
+
+    @Nullable
+    public Animator getPopExitAnimator() {
+        getPopExitAnim();
+        return popExitAnimator != null ? popExitAnimator.clone() : null;
+    }
+
+    /**
+     * Reloads the animations if the system animator duration scale has changed.
+     */
+    public void checkScaleChanged() {
+        if (scale != AnimatorDurationScale.get()) {
+            notifyChanged(fragmentAnimator);
+        }
+    }
+
     public Animation getNoneAnim() {
         if (noneAnim == null) {
             noneAnim = AnimationUtils.loadAnimation(context, R.anim.no_anim);
@@ -52,7 +136,7 @@ public final class AnimatorHelper {
                 (fragment.getParentFragment() != null && fragment.getParentFragment().isRemoving() && !fragment.isHidden())) {
             Animation animation = new Animation() {
             };
-            animation.setDuration(exitAnim.getDuration());
+            animation.setDuration(getExitAnim().getDuration());
             return animation;
         }
         return null;
@@ -61,8 +145,12 @@ public final class AnimatorHelper {
     private Animation initEnterAnim() {
         if (fragmentAnimator.getEnter() == 0) {
             enterAnim = AnimationUtils.loadAnimation(context, R.anim.no_anim);
+        } else if (isPropertyAnimator()) {
+            enterAnimator = AnimatorInflater.loadAnimator(context, fragmentAnimator.getEnter());
+            enterAnim = durationOf(enterAnimator);
         } else {
             enterAnim = AnimationUtils.loadAnimation(context, fragmentAnimator.getEnter());
+            AnimatorDurationScale.scale(enterAnim);
         }
         return enterAnim;
     }
@@ -70,8 +158,12 @@ public final class AnimatorHelper {
     private Animation initExitAnim() {
         if (fragmentAnimator.getExit() == 0) {
             exitAnim = AnimationUtils.loadAnimation(context, R.anim.no_anim);
+        } else if (isPropertyAnimator()) {
+            exitAnimator = AnimatorInflater.loadAnimator(context, fragmentAnimator.getExit());
+            exitAnim = durationOf(exitAnimator);
         } else {
             exitAnim = AnimationUtils.loadAnimation(context, fragmentAnimator.getExit());
+            AnimatorDurationScale.scale(exitAnim);
         }
         return exitAnim;
     }
@@ -79,8 +171,12 @@ public final class AnimatorHelper {
     private Animation initPopEnterAnim() {
         if (fragmentAnimator.getPopEnter() == 0) {
             popEnterAnim = AnimationUtils.loadAnimation(context, R.anim.no_anim);
+        } else if (isPropertyAnimator()) {
+            popEnterAnimator = AnimatorInflater.loadAnimator(context, fragmentAnimator.getPopEnter());
+            popEnterAnim = durationOf(popEnterAnimator);
         } else {
             popEnterAnim = AnimationUtils.loadAnimation(context, fragmentAnimator.getPopEnter());
+            AnimatorDurationScale.scale(popEnterAnim);
         }
         return popEnterAnim;
     }
@@ -88,9 +184,39 @@ public final class AnimatorHelper {
     private Animation initPopExitAnim() {
         if (fragmentAnimator.getPopExit() == 0) {
             popExitAnim = AnimationUtils.loadAnimation(context, R.anim.no_anim);
+        } else if (isPropertyAnimator()) {
+            popExitAnimator = AnimatorInflater.loadAnimator(context, fragmentAnimator.getPopExit());
+            popExitAnim = durationOf(popExitAnimator);
         } else {
             popExitAnim = AnimationUtils.loadAnimation(context, fragmentAnimator.getPopExit());
+            AnimatorDurationScale.scale(popExitAnim);
         }
         return popExitAnim;
     }
+
+    /**
+     * An Animation which does nothing for the duration of the animator, the queue and the enter-end
+     * callbacks are timed with it.
+     */
+    private static Animation durationOf(Animator animator) {
+        Animation animation = new Animation() {
+        };
+        animation.setDuration(AnimatorDurationScale.scale(totalDuration(animator)));
+        return animation;
+    }
+
+    private static long totalDuration(Animator animator) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return Math.max(0, animator.getTotalDuration());
+        }
+        // Approximation: the children are assumed to play together
+        long duration = animator.getDuration();
+        if (animator instanceof AnimatorSet && duration < 0) {
+            duration = 0;
+            for (Animator child : ((AnimatorSet) animator).getChildAnimations()) {
+                duration = Math.max(duration, totalDuration(child));
+            }
+        }
+        return animator.getStartDelay() + Math.max(0, duration);
+    }
 }
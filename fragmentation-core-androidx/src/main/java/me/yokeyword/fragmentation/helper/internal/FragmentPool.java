@@ -0,0 +1,55 @@
+package me.yokeyword.fragmentation.helper.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import androidx.fragment.app.Fragment;
+import me.yokeyword.fragmentation.ISupportFragment;
+
+/**
+ * @Hide LRU pool of the popped Fragments, keyed by the Fragment class and tag.
+ * <p>
+ * A parked Fragment has been destroyed and detached(its instance is reset by the FragmentManager),
+ * so it can be added again.
+ */
+public final class FragmentPool {
+    private final int mMaxSize;
+    private final LinkedHashMap<String, ISupportFragment> mFragments;
+
+    public FragmentPool(final int maxSize) {
+        this.mMaxSize = maxSize;
+        mFragments = new LinkedHashMap<String, ISupportFragment>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ISupportFragment> eldest) {
+                return size() > mMaxSize;
+            }
+        };
+    }
+
+    public void put(ISupportFragment fragment, String tag) {
+        mFragments.put(key(fragment.getClass(), tag), fragment);
+    }
+
+    /**
+     * @return The parked Fragment, null if there isn't one or it's still attached(e.g. animating out),
+     * then it stays parked.
+     */
+    public ISupportFragment take(Class<?> fragmentClass, String tag) {
+        String key = key(fragmentClass, tag);
+        ISupportFragment fragment = mFragments.get(key);
+        if (fragment == null) return null;
+
+        Fragment f = (Fragment) fragment;
+        if (f.isAdded() || f.getFragmentManager() != null) return null;
+        mFragments.remove(key);
+        return fragment;
+    }
+
+    public void clear() {
+        mFragments.clear();
+    }
+
+    private static String key(Class<?> fragmentClass, String tag) {
+        return fragmentClass.getName() + "#" + tag;
+    }
+}
@@ -0,0 +1,126 @@
+package me.yokeyword.fragmentation.helper.internal;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.AnimatorSet;
+import android.animation.ObjectAnimator;
+import android.animation.PropertyValuesHolder;
+import android.os.Handler;
+import android.view.View;
+import android.view.animation.AlphaAnimation;
+import android.view.animation.Animation;
+import android.view.animation.AnimationSet;
+import android.view.animation.RotateAnimation;
+import android.view.animation.ScaleAnimation;
+import android.view.animation.TranslateAnimation;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * @Hide Promotes the animating Fragment view to a hardware layer, so the frames of the transition
+ * only recompose the layer instead of redrawing the whole hierarchy.
+ * <p>
+ * Only the animations which touch alpha and transform are promoted, the layer is restored when the
+ * animation ends(AnimationListener is not reliable, so it's posted with the duration; the Animators
+ * restore it from their listener).
+ */
+public final class HardwareLayerHelper {
+    private static final Set<String> LAYER_PROPERTIES = new HashSet<>(Arrays.asList("alpha",
+            "translationX", "translationY", "x", "y", "scaleX", "scaleY", "rotation", "rotationX", "rotationY"));
+    private static final Map<View, Runnable> sPendingRestores = new WeakHashMap<>();
+
+    private HardwareLayerHelper() {
+    }
+
+    public static void promote(Handler handler, final View view, Animation animation) {
+        if (view == null || animation == null) return;
+
+        long duration = animation.computeDurationHint();
+        if (duration <= 0 || !isAlphaOrTransform(animation)) return;
+
+        // A pending restore means the layer is ours, and still in use by the new animation
+        Runnable restore = sPendingRestores.remove(view);
+        if (restore != null) {
+            handler.removeCallbacks(restore);
+        } else if (view.getLayerType() != View.LAYER_TYPE_NONE) {
+            // Set by the app, leave it alone
+            return;
+        } else {
+            view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        }
+
+        restore = new Runnable() {
+            @Override
+            public void run() {
+                sPendingRestores.remove(view);
+                if (view.getLayerType() == View.LAYER_TYPE_HARDWARE) {
+                    view.setLayerType(View.LAYER_TYPE_NONE, null);
+                }
+            }
+        };
+        sPendingRestores.put(view, restore);
+        handler.postDelayed(restore, duration);
+    }
+
+    public static void promote(final View view, Animator animator) {
+        if (view == null || animator == null || !isAlphaOrTransform(animator)) return;
+
+        animator.addListener(new AnimatorListenerAdapter() {
+            private boolean mPromoted;
+
+            @Override
+            public void onAnimationStart(Animator animation) {
+                if (view.getLayerType() != View.LAYER_TYPE_NONE) return;
+                mPromoted = true;
+                view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                if (mPromoted && view.getLayerType() == View.LAYER_TYPE_HARDWARE) {
+                    view.setLayerType(View.LAYER_TYPE_NONE, null);
+                }
+                mPromoted = false;
+            }
+        });
+    }
+
+    private static boolean isAlphaOrTransform(Animator animator) {
+        if (animator instanceof AnimatorSet) {
+            List<Animator> animators = ((AnimatorSet) animator).getChildAnimations();
+            for (Animator child : animators) {
+                if (!isAlphaOrTransform(child)) return false;
+            }
+            return !animators.isEmpty();
+        }
+        if (!(animator instanceof ObjectAnimator)) return false;
+
+        PropertyValuesHolder[] values = ((ObjectAnimator) animator).getValues();
+        if (values == null || values.length == 0) return false;
+        for (PropertyValuesHolder value : values) {
+            if (!LAYER_PROPERTIES.contains(value.getPropertyName())) return false;
+        }
+        return true;
+    }
+
+    private static boolean isAlphaOrTransform(Animation animation) {
+        Class<?> clazz = animation.getClass();
+        if (clazz == AnimationSet.class) {
+            List<Animation> animations = ((AnimationSet) animation).getAnimations();
+            for (Animation child : animations) {
+                if (!isAlphaOrTransform(child)) return false;
+            }
+            return !animations.isEmpty();
+        }
+        // Subclasses may change anything else in applyTransformation()
+        return clazz == AlphaAnimation.class
+                || clazz == TranslateAnimation.class
+                || clazz == ScaleAnimation.class
+                || clazz == RotateAnimation.class;
+    }
+}
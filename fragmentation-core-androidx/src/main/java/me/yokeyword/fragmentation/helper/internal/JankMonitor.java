@@ -0,0 +1,152 @@
+package me.yokeyword.fragmentation.helper.internal;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.view.Choreographer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import me.yokeyword.fragmentation.anim.DefaultFadeAnimator;
+import me.yokeyword.fragmentation.anim.DefaultFadePropertyAnimator;
+import me.yokeyword.fragmentation.anim.DefaultNoAnimator;
+import me.yokeyword.fragmentation.anim.FragmentAnimator;
+import me.yokeyword.fragmentation.anim.PropertyFragmentAnimator;
+
+/**
+ * @Hide Watches the frames during the Fragment transitions, and downgrades the animator of a Fragment class
+ * (app animator -> fade -> none) when its transitions keep dropping frames.
+ * <p>
+ * The levels are persisted, and reset when the system is updated(Build.FINGERPRINT changes).
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+public final class JankMonitor implements Choreographer.FrameCallback {
+    public static final int LEVEL_APP = 0;
+    public static final int LEVEL_FADE = 1;
+    public static final int LEVEL_NONE = 2;
+
+    private static final String PREFS_NAME = "fragmentation_jank_monitor";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    // Dropped frames / expected frames of a janky transition
+    private static final float JANK_RATIO = 0.3f;
+    private static final int MIN_DROPPED_FRAMES = 3;
+    private static final int JANKY_TRANSITIONS_TO_DOWNGRADE = 3;
+
+    private static SharedPreferences sPrefs;
+    private static final Map<String, Integer> sJankyTransitions = new HashMap<>();
+
+    private final long mFrameIntervalNanos;
+    private final DowngradeListener mListener;
+
+    private String mWatchingClassName;
+    private long mWatchingEndNanos;
+    private long mLastFrameNanos;
+    private int mFrames;
+    private int mDroppedFrames;
+
+    public JankMonitor(Activity activity, DowngradeListener listener) {
+        this.mListener = listener;
+        float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+        mFrameIntervalNanos = (long) (1000000000L / (refreshRate < 1f ? 60f : refreshRate));
+        initPrefs(activity.getApplicationContext());
+    }
+
+    private static synchronized void initPrefs(Context context) {
+        if (sPrefs != null) return;
+
+        sPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (!Build.FINGERPRINT.equals(sPrefs.getString(KEY_FINGERPRINT, null))) {
+            sPrefs.edit().clear().putString(KEY_FINGERPRINT, Build.FINGERPRINT).apply();
+        }
+    }
+
+    public static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+    }
+
+    public int getLevel(Class<?> fragmentClass) {
+        return sPrefs.getInt(fragmentClass.getName(), LEVEL_APP);
+    }
+
+    /**
+     * @return The animator of the downgrade level of the Fragment class, the fade one runs by the same
+     * animation system as the app animator(property animators for a {@link PropertyFragmentAnimator}).
+     */
+    public FragmentAnimator downgrade(Class<?> fragmentClass, FragmentAnimator animator) {
+        switch (getLevel(fragmentClass)) {
+            case LEVEL_FADE:
+                return animator instanceof PropertyFragmentAnimator ? new DefaultFadePropertyAnimator() : new DefaultFadeAnimator();
+            case LEVEL_NONE:
+                return new DefaultNoAnimator();
+            default:
+                return animator;
+        }
+    }
+
+    /**
+     * Watches the frames until the transition ends, ignored if another transition is being watched.
+     */
+    public void onTransitionStart(Class<?> fragmentClass, long durationMillis) {
+        if (mWatchingClassName != null || durationMillis <= 0) return;
+        if (getLevel(fragmentClass) >= LEVEL_NONE) return;
+
+        mWatchingClassName = fragmentClass.getName();
+        mWatchingEndNanos = System.nanoTime() + durationMillis * 1000000L;
+        mLastFrameNanos = 0;
+        mFrames = 0;
+        mDroppedFrames = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public void stop() {
+        if (mWatchingClassName == null) return;
+        Choreographer.getInstance().removeFrameCallback(this);
+        mWatchingClassName = null;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mLastFrameNanos != 0) {
+            long frames = Math.round((double) (frameTimeNanos - mLastFrameNanos) / mFrameIntervalNanos);
+            mFrames += Math.max(1, frames);
+            mDroppedFrames += Math.max(0, frames - 1);
+        }
+        mLastFrameNanos = frameTimeNanos;
+
+        if (frameTimeNanos < mWatchingEndNanos) {
+            Choreographer.getInstance().postFrameCallback(this);
+            return;
+        }
+
+        String className = mWatchingClassName;
+        mWatchingClassName = null;
+        onTransitionEnd(className, mFrames, mDroppedFrames);
+    }
+
+    private void onTransitionEnd(String className, int frames, int droppedFrames) {
+        boolean janky = droppedFrames >= MIN_DROPPED_FRAMES && droppedFrames >= frames * JANK_RATIO;
+        if (!janky) {
+            sJankyTransitions.remove(className);
+            return;
+        }
+
+        Integer count = sJankyTransitions.get(className);
+        count = count == null ? 1 : count + 1;
+        if (count < JANKY_TRANSITIONS_TO_DOWNGRADE) {
+            sJankyTransitions.put(className, count);
+            return;
+        }
+
+        sJankyTransitions.remove(className);
+        int level = Math.min(LEVEL_NONE, sPrefs.getInt(className, LEVEL_APP) + 1);
+        sPrefs.edit().putInt(className, level).apply();
+        mListener.onDowngrade(className, level);
+    }
+
+    public interface DowngradeListener {
+        void onDowngrade(String fragmentClassName, int level);
+    }
+}
@@ -0,0 +1,82 @@
+package me.yokeyword.fragmentation.helper.internal;
+
+import java.util.Arrays;
+
+import me.yokeyword.fragmentation.helper.LifecycleProfiler;
+
+/**
+ * @Hide Lifecycle phase timing of one SupportFragment.
+ */
+public final class LifecycleTimer {
+    private final Class<?> mFragmentClass;
+    private final long[] mLastDurations = new long[LifecycleProfiler.PHASE_COUNT];
+    private long mAttachTime;
+    private long mCreateEndTime;
+    private boolean mFirstVisibleRecorded;
+    private boolean mEnterAnimationEndRecorded;
+
+    public LifecycleTimer(Class<?> fragmentClass) {
+        this.mFragmentClass = fragmentClass;
+        Arrays.fill(mLastDurations, -1);
+    }
+
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    public void onAttach() {
+        mAttachTime = now();
+        mCreateEndTime = 0;
+        mFirstVisibleRecorded = false;
+        mEnterAnimationEndRecorded = false;
+    }
+
+    public void onCreateEnd() {
+        mCreateEndTime = now();
+        record(LifecycleProfiler.PHASE_CREATE, mCreateEndTime - mAttachTime);
+    }
+
+    /**
+     * @return The start time of onActivityCreated().
+     */
+    public long onActivityCreatedStart() {
+        long start = now();
+        if (mCreateEndTime != 0) {
+            record(LifecycleProfiler.PHASE_CREATE_VIEW, start - mCreateEndTime);
+            mCreateEndTime = 0;
+        }
+        return start;
+    }
+
+    public void onActivityCreatedEnd(long start) {
+        record(LifecycleProfiler.PHASE_ACTIVITY_CREATED, now() - start);
+    }
+
+    public void onSupportVisible() {
+        if (mFirstVisibleRecorded || mAttachTime == 0) return;
+        mFirstVisibleRecorded = true;
+        record(LifecycleProfiler.PHASE_FIRST_VISIBLE, now() - mAttachTime);
+    }
+
+    public void onLazyInitViewEnd(long start) {
+        record(LifecycleProfiler.PHASE_LAZY_INIT, now() - start);
+    }
+
+    public void onEnterAnimationEnd() {
+        if (mEnterAnimationEndRecorded || mAttachTime == 0) return;
+        mEnterAnimationEndRecorded = true;
+        record(LifecycleProfiler.PHASE_ENTER_ANIMATION_END, now() - mAttachTime);
+    }
+
+    /**
+     * @return The last duration of the phase in nanoseconds, -1 if not recorded yet.
+     */
+    public long getLastDuration(int phase) {
+        return mLastDurations[phase];
+    }
+
+    private void record(int phase, long nanos) {
+        mLastDurations[phase] = nanos;
+        LifecycleProfiler.record(mFragmentClass, phase, nanos);
+    }
+}
@@ -0,0 +1,233 @@
+package me.yokeyword.fragmentation.helper.internal;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @Hide On-device frequency model of the from -> to Fragment class transitions.
+ * <p>
+ * Persisted as readable JSON({"from": {"to": count}}) in files/fragmentation_navigation_model.json,
+ * read and written on a background thread. Each from keeps its most frequent targets, and the counts are
+ * halved when one reaches the max, so the model follows the changes of the app.
+ */
+public final class NavigationModel {
+    private static final String TAG = "Fragmentation";
+    private static final String FILE_NAME = "fragmentation_navigation_model.json";
+    private static final int MAX_TARGETS = 8;
+    private static final int MAX_COUNT = 1000;
+    private static final long SAVE_DELAY = 5000;
+
+    private static NavigationModel sInstance;
+
+    private final Map<String, Map<String, Integer>> mTransitions = new HashMap<>();
+    private final File mFile;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Fragmentation-NavigationModel");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+    private boolean mSavePending;
+
+    private final Runnable mSaveRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final String json;
+            synchronized (NavigationModel.this) {
+                mSavePending = false;
+                json = dump();
+            }
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    write(json);
+                }
+            });
+        }
+    };
+
+    private NavigationModel(File file) {
+        this.mFile = file;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                read();
+            }
+        });
+    }
+
+    public static synchronized NavigationModel get(Context context) {
+        if (sInstance == null) {
+            sInstance = new NavigationModel(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return sInstance;
+    }
+
+    public synchronized void record(String from, String to) {
+        add(from, to, 1);
+        if (!mSavePending) {
+            mSavePending = true;
+            mHandler.postDelayed(mSaveRunnable, SAVE_DELAY);
+        }
+    }
+
+    /**
+     * @return The likely next classes of the from class, the most likely first.
+     */
+    public synchronized List<String> predict(String from, float minProbability, int max) {
+        Map<String, Integer> targets = mTransitions.get(from);
+        if (targets == null) return Collections.emptyList();
+
+        int total = 0;
+        for (int count : targets.values()) {
+            total += count;
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(targets.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2) {
+                return o2.getValue() - o1.getValue();
+            }
+        });
+
+        List<String> predictions = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            if (predictions.size() >= max || entry.getValue() < total * minProbability) break;
+            predictions.add(entry.getKey());
+        }
+        return predictions;
+    }
+
+    /**
+     * Forget a class which can't be loaded anymore.
+     */
+    public synchronized void remove(String clazz) {
+        mTransitions.remove(clazz);
+        for (Map<String, Integer> targets : mTransitions.values()) {
+            targets.remove(clazz);
+        }
+    }
+
+    public synchronized String dump() {
+        JSONObject json = new JSONObject();
+        try {
+            for (Map.Entry<String, Map<String, Integer>> entry : mTransitions.entrySet()) {
+                json.put(entry.getKey(), new JSONObject(entry.getValue()));
+            }
+            return json.toString(2);
+        } catch (JSONException e) {
+            return json.toString();
+        }
+    }
+
+    private void add(String from, String to, int count) {
+        Map<String, Integer> targets = mTransitions.get(from);
+        if (targets == null) {
+            targets = new HashMap<>();
+            mTransitions.put(from, targets);
+        }
+        Integer old = targets.get(to);
+        int newCount = (old == null ? 0 : old) + count;
+        targets.put(to, newCount);
+
+        if (newCount >= MAX_COUNT) {
+            Iterator<Map.Entry<String, Integer>> iterator = targets.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Integer> entry = iterator.next();
+                if (entry.getValue() / 2 == 0) {
+                    iterator.remove();
+                } else {
+                    entry.setValue(entry.getValue() / 2);
+                }
+            }
+        }
+        if (targets.size() > MAX_TARGETS) {
+            String rarest = null;
+            for (Map.Entry<String, Integer> entry : targets.entrySet()) {
+                if (!entry.getKey().equals(to) && (rarest == null || entry.getValue() < targets.get(rarest))) {
+                    rarest = entry.getKey();
+                }
+            }
+            targets.remove(rarest);
+        }
+    }
+
+    private void read() {
+        if (!mFile.exists()) return;
+
+        StringBuilder sb = new StringBuilder();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(mFile));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line);
+            }
+            JSONObject json = new JSONObject(sb.toString());
+            synchronized (this) {
+                // Merged with the transitions recorded before it's read
+                Iterator<String> froms = json.keys();
+                while (froms.hasNext()) {
+                    String from = froms.next();
+                    JSONObject targets = json.getJSONObject(from);
+                    Iterator<String> tos = targets.keys();
+                    while (tos.hasNext()) {
+                        String to = tos.next();
+                        add(from, to, targets.getInt(to));
+                    }
+                }
+            }
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Read navigation model failure!", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void write(String json) {
+        FileWriter writer = null;
+        try {
+            writer = new FileWriter(mFile);
+            writer.write(json);
+        } catch (IOException e) {
+            Log.w(TAG, "Write navigation model failure!", e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
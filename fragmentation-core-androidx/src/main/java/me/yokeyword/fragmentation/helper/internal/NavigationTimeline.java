@@ -0,0 +1,214 @@
+package me.yokeyword.fragmentation.helper.internal;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.yokeyword.fragmentation.Fragmentation;
+import me.yokeyword.fragmentation.queue.ActionMetrics;
+
+/**
+ * @Hide Rolling navigation timeline in the Chrome Trace Event JSON format, open it in
+ * chrome://tracing or Perfetto.
+ * <p>
+ * The events are buffered in a bounded queue(dropped when full) and written by a background thread.
+ * When the file exceeds its max size, it is renamed to "*.1" and a new file is started.
+ */
+public final class NavigationTimeline {
+    private static final String TAG = "Fragmentation";
+    private static final int MAX_PENDING_EVENTS = 2048;
+    private static final long MAX_FILE_BYTES = 4 * 1024 * 1024;
+
+    private static final BlockingQueue<Event> sPendingEvents = new ArrayBlockingQueue<>(MAX_PENDING_EVENTS);
+    private static final AtomicInteger sDroppedEvents = new AtomicInteger();
+    private static volatile File sFile;
+    private static Thread sWriterThread;
+
+    private NavigationTimeline() {
+    }
+
+    public static boolean isEnabled() {
+        return Fragmentation.getDefault().getNavigationTraceFile() != null;
+    }
+
+    /**
+     * Complete event of an action, with its queue wait and queue hold.
+     */
+    public static void onAction(ActionMetrics metrics) {
+        if (!isEnabled()) return;
+
+        String target = metrics.targetClass == null ? null : metrics.targetClass.getSimpleName();
+        long start = metrics.enqueueTimeNanos + metrics.waitTimeNanos;
+        long end = start + metrics.runTimeNanos;
+        complete("wait", "queue", target, metrics.enqueueTimeNanos, metrics.waitTimeNanos);
+        complete("Action." + ActionMetrics.actionName(metrics.action), "action", target, start, metrics.runTimeNanos);
+        if (metrics.holdTimeNanos > 0) {
+            complete("hold", "queue", target, end, metrics.holdTimeNanos);
+        }
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} when the event started.
+     */
+    public static void complete(String name, String category, Object fragment, long startNanos, long durationNanos) {
+        if (!isEnabled()) return;
+        offer(new Event(name, category, 'X', fragmentName(fragment), startNanos, durationNanos));
+    }
+
+    public static void instant(String name, String category, Object fragment) {
+        if (!isEnabled()) return;
+        offer(new Event(name, category, 'i', fragmentName(fragment), System.nanoTime(), 0));
+    }
+
+    private static String fragmentName(Object fragment) {
+        if (fragment == null) return null;
+        if (fragment instanceof String) return (String) fragment;
+        if (fragment instanceof Class) return ((Class<?>) fragment).getSimpleName();
+        return fragment.getClass().getSimpleName();
+    }
+
+    private static void offer(Event event) {
+        if (!sPendingEvents.offer(event)) {
+            sDroppedEvents.incrementAndGet();
+            return;
+        }
+        ensureWriterStarted();
+    }
+
+    private static synchronized void ensureWriterStarted() {
+        if (sWriterThread != null) return;
+
+        sFile = Fragmentation.getDefault().getNavigationTraceFile();
+        sWriterThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "Fragmentation-TraceWriter");
+        sWriterThread.setDaemon(true);
+        sWriterThread.setPriority(Thread.MIN_PRIORITY);
+        sWriterThread.start();
+    }
+
+    private static void writeLoop() {
+        List<Event> batch = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        File file = sFile;
+        long fileBytes = file.length();
+
+        while (true) {
+            try {
+                Event first = sPendingEvents.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                sPendingEvents.drainTo(batch);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (fileBytes >= MAX_FILE_BYTES) {
+                File previous = new File(file.getPath() + ".1");
+                if (previous.exists() && !previous.delete()) {
+                    Log.w(TAG, "Can't delete the previous navigation trace: " + previous);
+                }
+                if (!file.renameTo(previous)) {
+                    Log.w(TAG, "Can't roll the navigation trace: " + file);
+                }
+                fileBytes = 0;
+            }
+
+            sb.setLength(0);
+            if (fileBytes == 0) {
+                sb.append("[\n");
+            }
+            for (Event event : batch) {
+                event.appendJson(sb);
+                sb.append(",\n");
+            }
+            int dropped = sDroppedEvents.getAndSet(0);
+            if (dropped > 0) {
+                new Event("dropped " + dropped + " events", "timeline", 'i', null, System.nanoTime(), 0).appendJson(sb);
+                sb.append(",\n");
+            }
+            batch.clear();
+
+            Writer writer = null;
+            try {
+                writer = new BufferedWriter(new FileWriter(file, true));
+                writer.write(sb.toString());
+                fileBytes += sb.length();
+            } catch (IOException e) {
+                Log.w(TAG, "Write navigation trace failure!", e);
+            } finally {
+                if (writer != null) {
+                    try {
+                        writer.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Event {
+        final String name;
+        final String category;
+        final char phase;
+        final String fragment;
+        final long startNanos;
+        final long durationNanos;
+        final int tid;
+
+        Event(String name, String category, char phase, String fragment, long startNanos, long durationNanos) {
+            this.name = name;
+            this.category = category;
+            this.phase = phase;
+            this.fragment = fragment;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.tid = Process.myTid();
+        }
+
+        void appendJson(StringBuilder sb) {
+            sb.append("{\"name\":\"");
+            appendEscaped(sb, fragment == null ? name : name + " " + fragment);
+            sb.append("\",\"cat\":\"").append(category)
+                    .append("\",\"ph\":\"").append(phase)
+                    .append("\",\"ts\":").append(startNanos / 1000);
+            if (phase == 'X') {
+                sb.append(",\"dur\":").append(durationNanos / 1000);
+            } else {
+                sb.append(",\"s\":\"t\"");
+            }
+            sb.append(",\"pid\":").append(Process.myPid())
+                    .append(",\"tid\":").append(tid);
+            if (fragment != null) {
+                sb.append(",\"args\":{\"fragment\":\"");
+                appendEscaped(sb, fragment);
+                sb.append("\"}");
+            }
+            sb.append('}');
+        }
+
+        private static void appendEscaped(StringBuilder sb, String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+        }
+    }
+}
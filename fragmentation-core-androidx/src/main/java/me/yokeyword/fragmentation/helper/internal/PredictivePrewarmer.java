@@ -0,0 +1,164 @@
+package me.yokeyword.fragmentation.helper.internal;
+
+import android.animation.AnimatorInflater;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.animation.AnimationUtils;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import me.yokeyword.fragmentation.Fragmentation;
+import me.yokeyword.fragmentation.ISupportFragment;
+import me.yokeyword.fragmentation.anim.FragmentAnimator;
+import me.yokeyword.fragmentation.anim.PropertyFragmentAnimator;
+import me.yokeyword.fragmentation.helper.PrewarmLayoutProvider;
+
+/**
+ * @Hide Prewarms the likely next Fragments({@link NavigationModel}) of a Fragment whose enter animation
+ * has ended, in the idle time of the main thread, one step per idle: load the class(and the default
+ * animations once), then inflate the layout given by the {@link PrewarmLayoutProvider} in the background.
+ * <p>
+ * Budget: the {@link #MAX_PREDICTIONS} most likely Fragments, each at least {@link #MIN_PROBABILITY}
+ * likely. The views of the previous predictions are dropped.
+ */
+public final class PredictivePrewarmer {
+    private static final int MAX_PREDICTIONS = 2;
+    private static final float MIN_PROBABILITY = 0.2f;
+
+    // Main thread only
+    private static final Map<String, Class<?>> sLoadedClasses = new HashMap<>();
+
+    private final FragmentActivity mActivity;
+    private final NavigationModel mModel;
+    private final LinkedList<Runnable> mSteps = new LinkedList<>();
+    private final Map<Class<?>, View> mViews = new HashMap<>();
+    private int mGeneration;
+    private boolean mAnimationsLoaded;
+    private boolean mIdleHandlerAdded;
+
+    private final MessageQueue.IdleHandler mIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            Runnable step = mSteps.poll();
+            if (step != null) {
+                step.run();
+            }
+            mIdleHandlerAdded = !mSteps.isEmpty();
+            return mIdleHandlerAdded;
+        }
+    };
+
+    public PredictivePrewarmer(FragmentActivity activity) {
+        this.mActivity = activity;
+        this.mModel = NavigationModel.get(activity);
+    }
+
+    public void record(ISupportFragment from, ISupportFragment to) {
+        mModel.record(from.getClass().getName(), to.getClass().getName());
+    }
+
+    public void prewarm(ISupportFragment fragment, @Nullable final FragmentAnimator animator) {
+        mSteps.clear();
+        mViews.clear();
+        final int generation = ++mGeneration;
+
+        View view = ((Fragment) fragment).getView();
+        final ViewGroup container = view != null && view.getParent() instanceof ViewGroup ? (ViewGroup) view.getParent() : null;
+
+        for (final String className : mModel.predict(fragment.getClass().getName(), MIN_PROBABILITY, MAX_PREDICTIONS)) {
+            mSteps.add(new Runnable() {
+                @Override
+                public void run() {
+                    Class<?> clazz = loadClass(className);
+                    if (clazz != null) {
+                        inflate(clazz, container, generation);
+                    }
+                }
+            });
+        }
+        if (mSteps.isEmpty()) return;
+
+        if (!mAnimationsLoaded && animator != null) {
+            mSteps.add(new Runnable() {
+                @Override
+                public void run() {
+                    mAnimationsLoaded = true;
+                    loadAnimations(animator);
+                }
+            });
+        }
+
+        if (!mIdleHandlerAdded) {
+            mIdleHandlerAdded = true;
+            Looper.myQueue().addIdleHandler(mIdleHandler);
+        }
+    }
+
+    /**
+     * @return The view inflated for the Fragment class, null if there isn't one.
+     */
+    @Nullable
+    public View takeView(Class<?> fragmentClass) {
+        return mViews.remove(fragmentClass);
+    }
+
+    private Class<?> loadClass(String className) {
+        Class<?> clazz = sLoadedClasses.get(className);
+        if (clazz != null) return clazz;
+
+        try {
+            clazz = Class.forName(className, true, mActivity.getClassLoader());
+            sLoadedClasses.put(className, clazz);
+            return clazz;
+        } catch (ClassNotFoundException e) {
+            // Renamed or removed by an update
+            mModel.remove(className);
+            return null;
+        }
+    }
+
+    private void inflate(final Class<?> clazz, ViewGroup container, final int generation) {
+        PrewarmLayoutProvider provider = Fragmentation.getDefault().getPrewarmLayoutProvider();
+        if (provider == null || mViews.containsKey(clazz)) return;
+
+        int layoutId = provider.getPrewarmLayout(clazz);
+        if (layoutId == 0) return;
+
+        final long start = System.nanoTime();
+        new AsyncLayoutInflater(mActivity).inflate(layoutId, container, new AsyncLayoutInflater.OnInflateFinishedListener() {
+            @Override
+            public void onInflateFinished(@NonNull View view, int resid, @Nullable ViewGroup parent) {
+                NavigationTimeline.complete("predictivePrewarm", "inflate", clazz, start, System.nanoTime() - start);
+                if (generation == mGeneration) {
+                    mViews.put(clazz, view);
+                }
+            }
+        });
+    }
+
+    private void loadAnimations(FragmentAnimator animator) {
+        int[] resIds = {animator.getEnter(), animator.getExit(), animator.getPopEnter(), animator.getPopExit()};
+        boolean property = animator instanceof PropertyFragmentAnimator;
+        for (int resId : resIds) {
+            if (resId == 0) continue;
+            try {
+                if (property) {
+                    AnimatorInflater.loadAnimator(mActivity, resId);
+                } else {
+                    AnimationUtils.loadAnimation(mActivity, resId);
+                }
+            } catch (Exception ignored) {
+                // Loaded again, and reported, when it's used
+            }
+        }
+    }
+}
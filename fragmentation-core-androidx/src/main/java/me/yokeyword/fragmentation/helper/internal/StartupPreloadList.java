@@ -0,0 +1,269 @@
+package me.yokeyword.fragmentation.helper.internal;
+
+import android.animation.AnimatorInflater;
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.animation.AnimationUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
+import me.yokeyword.fragmentation.Fragmentation;
+import me.yokeyword.fragmentation.ISupportFragment;
+import me.yokeyword.fragmentation.anim.FragmentAnimator;
+import me.yokeyword.fragmentation.helper.PrewarmLayoutProvider;
+
+/**
+ * @Hide The classes and resources used by the Fragments at startup.
+ * <p>
+ * Debug: records the Fragment classes, the view classes of their views(the framework ones excluded),
+ * their animations, and their layouts given by the {@link PrewarmLayoutProvider}, during the first
+ * milliseconds after the first Activity is created. Then writes the list to
+ * [external files]/fragmentation_preload.txt, to be copied to the app's assets.
+ * <p>
+ * Release: a background thread preloads the list of assets/fragmentation_preload.txt.
+ * <p>
+ * One entry per line, "class:name" or "res:type/name"(the names are stable across the builds, the ids are not).
+ * <p>
+ * The recording starts after super.onCreate() of the Activity, the Fragments it restores aren't recorded.
+ */
+public final class StartupPreloadList {
+    private static final String TAG = "Fragmentation";
+    public static final String FILE_NAME = "fragmentation_preload.txt";
+    private static final String PREFIX_CLASS = "class:";
+    private static final String PREFIX_RES = "res:";
+
+    // Main thread only
+    private static final Set<String> sEntries = new LinkedHashSet<>();
+    private static final List<RecordCallbacks> sCallbacks = new ArrayList<>();
+    private static boolean sRecordStarted;
+    private static boolean sRecording;
+    private static boolean sPreloadStarted;
+
+    private StartupPreloadList() {
+    }
+
+    /**
+     * Records the Fragments of the Activity if the recording time isn't over, the first call starts it.
+     */
+    public static void record(FragmentActivity activity, long recordTime) {
+        if (!sRecordStarted) {
+            sRecordStarted = true;
+            sRecording = true;
+            File externalDir = activity.getExternalFilesDir(null);
+            final File dir = externalDir != null ? externalDir : activity.getFilesDir();
+            new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    sRecording = false;
+                    for (RecordCallbacks callbacks : sCallbacks) {
+                        callbacks.unregister();
+                    }
+                    sCallbacks.clear();
+                    write(new File(dir, FILE_NAME), new ArrayList<>(sEntries));
+                    sEntries.clear();
+                }
+            }, recordTime);
+        }
+        if (!sRecording) return;
+
+        FragmentManager fm = activity.getSupportFragmentManager();
+        RecordCallbacks callbacks = new RecordCallbacks(fm, activity.getResources());
+        fm.registerFragmentLifecycleCallbacks(callbacks, true);
+        sCallbacks.add(callbacks);
+    }
+
+    /**
+     * Starts preloading the list of the assets on a background thread, once.
+     */
+    public static synchronized void preload(Context context) {
+        if (sPreloadStarted) return;
+        sPreloadStarted = true;
+
+        final Context appContext = context.getApplicationContext();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                long start = System.nanoTime();
+                int count = preloadAll(appContext);
+                if (count > 0) {
+                    NavigationTimeline.complete("preload " + count, "startup", null, start, System.nanoTime() - start);
+                }
+            }
+        }, "Fragmentation-Preload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static int preloadAll(Context context) {
+        BufferedReader reader = null;
+        int count = 0;
+        try {
+            reader = new BufferedReader(new InputStreamReader(context.getAssets().open(FILE_NAME)));
+            ClassLoader classLoader = context.getClassLoader();
+            Resources resources = context.getResources();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    if (line.startsWith(PREFIX_CLASS)) {
+                        // Loaded without running the static initializers off the main thread
+                        Class.forName(line.substring(PREFIX_CLASS.length()), false, classLoader);
+                        count++;
+                    } else if (line.startsWith(PREFIX_RES)) {
+                        if (preloadRes(context, resources, line.substring(PREFIX_RES.length()))) {
+                            count++;
+                        }
+                    }
+                } catch (Exception ignored) {
+                    // Renamed or removed since the list was recorded
+                }
+            }
+        } catch (FileNotFoundException ignored) {
+            // No list
+        } catch (IOException e) {
+            Log.w(TAG, "Read preload list failure!", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        return count;
+    }
+
+    private static boolean preloadRes(Context context, Resources resources, String typeAndName) {
+        int slash = typeAndName.indexOf('/');
+        if (slash < 0) return false;
+
+        String type = typeAndName.substring(0, slash);
+        int id = resources.getIdentifier(typeAndName.substring(slash + 1), type, context.getPackageName());
+        if (id == 0) return false;
+
+        switch (type) {
+            case "anim":
+                AnimationUtils.loadAnimation(context, id);
+                return true;
+            case "animator":
+                AnimatorInflater.loadAnimator(context, id);
+                return true;
+            case "layout":
+                XmlResourceParser parser = resources.getLayout(id);
+                parser.close();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void write(File file, List<String> entries) {
+        FileWriter writer = null;
+        try {
+            writer = new FileWriter(file);
+            for (String entry : entries) {
+                writer.write(entry);
+                writer.write('\n');
+            }
+            Log.i(TAG, "Preload list(" + entries.size() + " entries) written to " + file
+                    + ", copy it to src/main/assets/" + FILE_NAME);
+        } catch (IOException e) {
+            Log.w(TAG, "Write preload list failure!", e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static final class RecordCallbacks extends FragmentManager.FragmentLifecycleCallbacks {
+        // Not to keep the Activity until the recording ends
+        private final WeakReference<FragmentManager> mFragmentManager;
+        private final Resources mResources;
+
+        RecordCallbacks(FragmentManager fm, Resources resources) {
+            this.mFragmentManager = new WeakReference<>(fm);
+            this.mResources = resources;
+        }
+
+        void unregister() {
+            FragmentManager fm = mFragmentManager.get();
+            if (fm != null) {
+                fm.unregisterFragmentLifecycleCallbacks(this);
+            }
+        }
+
+        @Override
+        public void onFragmentCreated(@NonNull FragmentManager fm, @NonNull Fragment f, @Nullable Bundle savedInstanceState) {
+            if (!sRecording) return;
+
+            sEntries.add(PREFIX_CLASS + f.getClass().getName());
+            if (!(f instanceof ISupportFragment)) return;
+
+            FragmentAnimator animator = ((ISupportFragment) f).getSupportDelegate().getFragmentAnimator();
+            if (animator != null) {
+                addRes(animator.getEnter());
+                addRes(animator.getExit());
+                addRes(animator.getPopEnter());
+                addRes(animator.getPopExit());
+            }
+            PrewarmLayoutProvider provider = Fragmentation.getDefault().getPrewarmLayoutProvider();
+            if (provider != null) {
+                addRes(provider.getPrewarmLayout(f.getClass()));
+            }
+        }
+
+        @Override
+        public void onFragmentViewCreated(@NonNull FragmentManager fm, @NonNull Fragment f, @NonNull View v, @Nullable Bundle savedInstanceState) {
+            if (!sRecording) return;
+            addViewClasses(v);
+        }
+
+        private void addViewClasses(View view) {
+            String name = view.getClass().getName();
+            if (!name.startsWith("android.") && !name.startsWith("com.android.")) {
+                sEntries.add(PREFIX_CLASS + name);
+            }
+            if (view instanceof ViewGroup) {
+                ViewGroup group = (ViewGroup) view;
+                for (int i = 0; i < group.getChildCount(); i++) {
+                    addViewClasses(group.getChildAt(i));
+                }
+            }
+        }
+
+        private void addRes(int resId) {
+            if (resId == 0) return;
+            try {
+                sEntries.add(PREFIX_RES + mResources.getResourceTypeName(resId) + "/" + mResources.getResourceEntryName(resId));
+            } catch (Resources.NotFoundException ignored) {
+            }
+        }
+    }
+}
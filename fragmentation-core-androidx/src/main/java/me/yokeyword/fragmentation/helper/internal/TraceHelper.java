@@ -0,0 +1,59 @@
+package me.yokeyword.fragmentation.helper.internal;
+
+import androidx.tracing.Trace;
+import me.yokeyword.fragmentation.Fragmentation;
+
+/**
+ * @Hide System trace sections of the Fragmentation actions and lifecycle hooks.
+ * <p>
+ * Only works when {@link Fragmentation.FragmentationBuilder#trace(boolean)} is true.
+ */
+public final class TraceHelper {
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+    private static final String PREFIX = "Fragmentation:";
+
+    private TraceHelper() {
+    }
+
+    public static boolean isEnabled() {
+        return Fragmentation.getDefault().isTrace();
+    }
+
+    /**
+     * Must be paired with {@link #endSection()} on the same thread.
+     *
+     * @param target The Fragment, its class or its tag.
+     */
+    public static void beginSection(String name, Object target) {
+        Trace.beginSection(sectionName(name, target));
+    }
+
+    public static void endSection() {
+        Trace.endSection();
+    }
+
+    public static void beginAsyncSection(String name, Object target, int cookie) {
+        Trace.beginAsyncSection(sectionName(name, target), cookie);
+    }
+
+    public static void endAsyncSection(String name, Object target, int cookie) {
+        Trace.endAsyncSection(sectionName(name, target), cookie);
+    }
+
+    private static String sectionName(String name, Object target) {
+        String sectionName;
+        if (target == null) {
+            sectionName = PREFIX + name;
+        } else if (target instanceof String) { // Fragment tag, the class name by default
+            String tag = (String) target;
+            sectionName = PREFIX + name + " " + tag.substring(tag.lastIndexOf('.') + 1);
+        } else {
+            Class<?> clazz = target instanceof Class ? (Class<?>) target : target.getClass();
+            sectionName = PREFIX + name + " " + clazz.getSimpleName();
+        }
+        if (sectionName.length() > MAX_SECTION_NAME_LENGTH) {
+            sectionName = sectionName.substring(0, MAX_SECTION_NAME_LENGTH);
+        }
+        return sectionName;
+    }
+}
@@ -32,6 +32,7 @@ public class VisibleDelegate {
 
     private ISupportFragment mSupportF;
     private Fragment mFragment;
+    private LifecycleTimer mLifecycleTimer;
 
     public VisibleDelegate(ISupportFragment fragment) {
         this.mSupportF = fragment;
@@ -105,6 +106,16 @@ public class VisibleDelegate {
         mIsFirstVisible = true;
     }
 
+    /**
+     * The Fragment is taken from the Fragment pool, it starts again like a new one.
+     */
+    public void onReuse() {
+        mIsSupportVisible = false;
+        mNeedDispatch = true;
+        mInvisibleWhenLeave = false;
+        mSaveInstanceState = null;
+    }
+
     public void setUserVisibleHint(boolean isVisibleToUser) {
         if (mFragment.isResumed() || (!mFragment.isAdded() && isVisibleToUser)) {
             if (!mIsSupportVisible && isVisibleToUser) {
@@ -134,27 +145,48 @@ public class VisibleDelegate {
     }
 
     private void dispatchSupportVisible(boolean visible) {
-        if (visible && isParentInvisible()) return;
-
-        if (mIsSupportVisible == visible) {
-            mNeedDispatch = true;
-            return;
-        }
+        boolean trace = TraceHelper.isEnabled();
+        if (trace) TraceHelper.beginSection("dispatchSupportVisible", mSupportF);
+        try {
+            if (visible && isParentInvisible()) return;
+
+            if (mIsSupportVisible == visible) {
+                mNeedDispatch = true;
+                return;
+            }
 
-        mIsSupportVisible = visible;
+            mIsSupportVisible = visible;
 
-        if (visible) {
-            if (checkAddState()) return;
-            mSupportF.onSupportVisible();
+            if (visible) {
+                if (checkAddState()) return;
+                mSupportF.onSupportVisible();
+                NavigationTimeline.instant("supportVisible", "visibility", mSupportF);
+                if (mLifecycleTimer != null) {
+                    mLifecycleTimer.onSupportVisible();
+                }
 
-            if (mIsFirstVisible) {
-                mIsFirstVisible = false;
-                mSupportF.onLazyInitView(mSaveInstanceState);
+                if (mIsFirstVisible) {
+                    mIsFirstVisible = false;
+                    long lazyInitStart = LifecycleTimer.now();
+                    if (trace) TraceHelper.beginSection("onLazyInitView", mSupportF);
+                    try {
+                        mSupportF.onLazyInitView(mSaveInstanceState);
+                    } finally {
+                        if (trace) TraceHelper.endSection();
+                    }
+                    if (mLifecycleTimer != null) {
+                        mLifecycleTimer.onLazyInitViewEnd(lazyInitStart);
+                    }
+                    NavigationTimeline.complete("onLazyInitView", "lifecycle", mSupportF, lazyInitStart, LifecycleTimer.now() - lazyInitStart);
+                }
+                dispatchChild(true);
+            } else {
+                dispatchChild(false);
+                mSupportF.onSupportInvisible();
+                NavigationTimeline.instant("supportInvisible", "visibility", mSupportF);
             }
-            dispatchChild(true);
-        } else {
-            dispatchChild(false);
-            mSupportF.onSupportInvisible();
+        } finally {
+            if (trace) TraceHelper.endSection();
         }
     }
 
@@ -192,6 +224,10 @@ public class VisibleDelegate {
         return !fragment.isHidden() && fragment.getUserVisibleHint();
     }
 
+    public void setLifecycleTimer(LifecycleTimer lifecycleTimer) {
+        this.mLifecycleTimer = lifecycleTimer;
+    }
+
     public boolean isSupportVisible() {
         return mIsSupportVisible;
     }
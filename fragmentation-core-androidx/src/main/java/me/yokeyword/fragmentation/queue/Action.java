@@ -19,6 +19,11 @@ public abstract class Action {
     public FragmentManager fragmentManager;
     public int action = ACTION_NORMAL;
     public long duration = 0;
+    public Class<?> sourceClass, targetClass;
+
+    // Metrics, only recorded when an ActionMetricsListener is installed or the navigation timeline is enabled.
+    long enqueueTime, startTime, endTime;
+    int queueDepth;
 
     public Action() {
     }
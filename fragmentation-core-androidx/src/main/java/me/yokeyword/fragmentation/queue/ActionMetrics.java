@@ -0,0 +1,73 @@
+package me.yokeyword.fragmentation.queue;
+
+/**
+ * The latency of one action performed by the {@link ActionQueue}.
+ */
+public class ActionMetrics {
+    /**
+     * {@link Action#ACTION_NORMAL}, {@link Action#ACTION_POP}, {@link Action#ACTION_POP_MOCK},
+     * {@link Action#ACTION_BACK} or {@link Action#ACTION_LOAD}.
+     */
+    public final int action;
+    /**
+     * The target Fragment's class, null if unknown.
+     */
+    public final Class<?> targetClass;
+    /**
+     * Time waiting in the queue, from enqueue to start.
+     */
+    public final long waitTimeNanos;
+    /**
+     * Time spent in {@link Action#run()}.
+     */
+    public final long runTimeNanos;
+    /**
+     * Time the queue is held by postDelayed() after the action ran.
+     */
+    public final long holdTimeNanos;
+    /**
+     * The count of the actions ahead of this one when it was enqueued.
+     */
+    public final int queueDepth;
+    /**
+     * {@link System#nanoTime()} when the action was enqueued.
+     */
+    public final long enqueueTimeNanos;
+
+    ActionMetrics(Action action, long holdTimeNanos) {
+        this.action = action.action;
+        this.targetClass = action.targetClass;
+        this.waitTimeNanos = action.startTime - action.enqueueTime;
+        this.runTimeNanos = action.endTime - action.startTime;
+        this.holdTimeNanos = holdTimeNanos;
+        this.queueDepth = action.queueDepth;
+        this.enqueueTimeNanos = action.enqueueTime;
+    }
+
+    public static String actionName(int action) {
+        switch (action) {
+            case Action.ACTION_NORMAL:
+                return "NORMAL";
+            case Action.ACTION_POP:
+                return "POP";
+            case Action.ACTION_POP_MOCK:
+                return "POP_MOCK";
+            case Action.ACTION_BACK:
+                return "BACK";
+            case Action.ACTION_LOAD:
+                return "LOAD";
+            default:
+                return String.valueOf(action);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ActionMetrics{" + actionName(action)
+                + ", target=" + (targetClass == null ? null : targetClass.getSimpleName())
+                + ", wait=" + waitTimeNanos / 1000 + "us"
+                + ", run=" + runTimeNanos / 1000 + "us"
+                + ", hold=" + holdTimeNanos / 1000 + "us"
+                + ", depth=" + queueDepth + "}";
+    }
+}
@@ -5,9 +5,17 @@ import android.os.Looper;
 
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentationMagician;
+import me.yokeyword.fragmentation.Fragmentation;
 import me.yokeyword.fragmentation.ISupportFragment;
 import me.yokeyword.fragmentation.SupportHelper;
+import me.yokeyword.fragmentation.helper.ActionMetricsListener;
+import me.yokeyword.fragmentation.helper.internal.AnimatorDurationScale;
+import me.yokeyword.fragmentation.helper.internal.NavigationTimeline;
+import me.yokeyword.fragmentation.helper.internal.TraceHelper;
 
 /**
  * The queue of perform action.
@@ -15,19 +23,55 @@ import me.yokeyword.fragmentation.SupportHelper;
  * Created by YoKey on 17/12/29.
  */
 public class ActionQueue {
+    private static final AtomicInteger sTraceCookie = new AtomicInteger();
     private Queue<Action> mQueue = new LinkedList<>();
     private Handler mMainHandler;
+    private ActionWatchdog mWatchdog;
+    private boolean mImmediate;
+    private boolean mDraining;
+    private boolean mDrainPosted;
 
     public ActionQueue(Handler mainHandler) {
         this.mMainHandler = mainHandler;
     }
 
+    /**
+     * @param immediate Run the actions right away, one after another, without the holds between them.
+     *                  Always on while the system animator duration scale is 0.
+     */
+    public void setImmediate(boolean immediate) {
+        this.mImmediate = immediate;
+    }
+
+    public boolean isImmediate() {
+        return mImmediate || AnimatorDurationScale.get() == 0f;
+    }
+
     public void enqueue(final Action action) {
         if (isThrottleBACK(action)) return;
 
+        if (isTimed()) {
+            action.enqueueTime = System.nanoTime();
+        }
+
+        if (isImmediate()) {
+            if (Thread.currentThread() == Looper.getMainLooper().getThread()) {
+                enqueueImmediateAction(action);
+            } else {
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        enqueueImmediateAction(action);
+                    }
+                });
+            }
+            return;
+        }
+
         if (action.action == Action.ACTION_LOAD && mQueue.isEmpty()
                 && Thread.currentThread() == Looper.getMainLooper().getThread()) {
-            action.run();
+            runAction(action, false);
+            reportAction(action, 0);
             return;
         }
 
@@ -40,36 +84,164 @@ public class ActionQueue {
     }
 
     private void enqueueAction(Action action) {
+        action.queueDepth = mQueue.size();
         mQueue.add(action);
         if (mQueue.size() == 1) {
             handleAction();
         }
     }
 
+    /**
+     * The actions enqueued while draining(e.g. from a lifecycle callback) are run after the current one.
+     * <p>
+     * The mode is latched until the queue drains: while the head is still held(run, but polled only when
+     * its hold ends), the action waits behind it as in the normal mode, or the head would run again.
+     */
+    private void enqueueImmediateAction(Action action) {
+        if (!mDraining && !mDrainPosted && !mQueue.isEmpty()) {
+            enqueueAction(action);
+            return;
+        }
+
+        action.queueDepth = mQueue.size();
+        mQueue.add(action);
+        if (mDraining || mDrainPosted) return;
+
+        drainImmediateActions();
+    }
+
+    private void drainImmediateActions() {
+        mDraining = true;
+        try {
+            Action head;
+            while ((head = mQueue.peek()) != null) {
+                FragmentManager fm = head.fragmentManager;
+                // Enqueued from a lifecycle callback while the FragmentManager executes its transactions,
+                // the action can't execute its own yet.
+                if (fm != null && FragmentationMagician.isExecutingActions(fm)) {
+                    postDrainImmediateActions();
+                    return;
+                }
+
+                mQueue.poll();
+                runAction(head, true);
+                reportAction(head, 0);
+            }
+        } finally {
+            mDraining = false;
+        }
+    }
+
+    private void postDrainImmediateActions() {
+        mDrainPosted = true;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mDrainPosted = false;
+                drainImmediateActions();
+            }
+        });
+    }
+
     private void handleAction() {
         if (mQueue.isEmpty()) return;
 
         Action action = mQueue.peek();
-        action.run();
+        runAction(action, false);
 
         executeNextAction(action);
     }
 
-    private void executeNextAction(Action action) {
+    /**
+     * @param flush Apply the transaction of the action right away, timed and watched with it.
+     */
+    private void runAction(Action action, boolean flush) {
+        boolean timed = isTimed();
+        if (timed) {
+            action.startTime = System.nanoTime();
+            if (action.enqueueTime == 0) { // The timing was enabled after enqueue.
+                action.enqueueTime = action.startTime;
+            }
+        }
+
+        long budget = Fragmentation.getDefault().getActionBudget();
+        if (budget > 0) {
+            getWatchdog().start(budget);
+        }
+
+        boolean trace = TraceHelper.isEnabled();
+        if (trace) TraceHelper.beginSection("Action." + ActionMetrics.actionName(action.action), action.targetClass);
+        try {
+            action.run();
+            // Immediate mode: the next action sees the result as it does after a hold.
+            FragmentManager fm = action.fragmentManager;
+            if (flush && fm != null && !FragmentationMagician.isExecutingActions(fm)) {
+                FragmentationMagician.executePendingTransactionsAllowingStateLoss(fm);
+            }
+        } finally {
+            if (trace) TraceHelper.endSection();
+            if (budget > 0) {
+                getWatchdog().stop(action, budget);
+            }
+        }
+
+        if (timed) {
+            action.endTime = System.nanoTime();
+        }
+    }
+
+    private void executeNextAction(final Action action) {
         if (action.action == Action.ACTION_POP) {
             ISupportFragment top = SupportHelper.getBackStackTopFragment(action.fragmentManager);
-            action.duration = top == null ? Action.DEFAULT_POP_TIME : top.getSupportDelegate().getExitAnimDuration();
+            action.duration = top == null ? AnimatorDurationScale.scale(Action.DEFAULT_POP_TIME) : top.getSupportDelegate().getExitAnimDuration();
+            if (top != null && action.targetClass == null) {
+                action.targetClass = top.getClass();
+            }
         }
 
+        // Async slice covers the period the queue is held.
+        final boolean trace = TraceHelper.isEnabled();
+        final int traceCookie = trace ? sTraceCookie.incrementAndGet() : 0;
+        if (trace) TraceHelper.beginAsyncSection("hold", action.targetClass, traceCookie);
+
         mMainHandler.postDelayed(new Runnable() {
             @Override
             public void run() {
+                if (trace) TraceHelper.endAsyncSection("hold", action.targetClass, traceCookie);
                 mQueue.poll();
+                if (action.endTime != 0) {
+                    reportAction(action, System.nanoTime() - action.endTime);
+                }
                 handleAction();
             }
         }, action.duration);
     }
 
+    /**
+     * Timing is recorded only when someone consumes it.
+     */
+    private boolean isTimed() {
+        return Fragmentation.getDefault().getActionMetricsListener() != null || NavigationTimeline.isEnabled();
+    }
+
+    private void reportAction(Action action, long holdTimeNanos) {
+        if (action.endTime == 0) return;
+
+        ActionMetrics metrics = new ActionMetrics(action, holdTimeNanos);
+        ActionMetricsListener metricsListener = Fragmentation.getDefault().getActionMetricsListener();
+        if (metricsListener != null) {
+            metricsListener.onActionMetrics(metrics);
+        }
+        NavigationTimeline.onAction(metrics);
+    }
+
+    private ActionWatchdog getWatchdog() {
+        if (mWatchdog == null) {
+            mWatchdog = new ActionWatchdog();
+        }
+        return mWatchdog;
+    }
+
     private boolean isThrottleBACK(Action action) {
         if (action.action == Action.ACTION_BACK) {
             Action head = mQueue.peek();
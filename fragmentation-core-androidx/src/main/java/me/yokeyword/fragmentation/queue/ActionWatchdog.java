@@ -0,0 +1,57 @@
+package me.yokeyword.fragmentation.queue;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import me.yokeyword.fragmentation.Fragmentation;
+import me.yokeyword.fragmentation.exception.ActionBudgetExceededWarning;
+
+/**
+ * Report the action which blocks the main thread longer than the budget, with the main thread's
+ * stack sampled when the budget ran out.
+ */
+class ActionWatchdog {
+    private static Handler sWatchdogHandler;
+
+    private long mStartTime;
+    private volatile StackTraceElement[] mSampledStack;
+    private final Runnable mSampleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mSampledStack = Looper.getMainLooper().getThread().getStackTrace();
+        }
+    };
+
+    private static synchronized Handler getWatchdogHandler() {
+        if (sWatchdogHandler == null) {
+            HandlerThread thread = new HandlerThread("Fragmentation-Watchdog");
+            thread.start();
+            sWatchdogHandler = new Handler(thread.getLooper());
+        }
+        return sWatchdogHandler;
+    }
+
+    void start(long budget) {
+        mSampledStack = null;
+        mStartTime = SystemClock.uptimeMillis();
+        getWatchdogHandler().postDelayed(mSampleRunnable, budget);
+    }
+
+    void stop(Action action, long budget) {
+        getWatchdogHandler().removeCallbacks(mSampleRunnable);
+        long elapsed = SystemClock.uptimeMillis() - mStartTime;
+        if (elapsed <= budget) return;
+
+        ActionBudgetExceededWarning e = new ActionBudgetExceededWarning(ActionMetrics.actionName(action.action),
+                action.sourceClass, action.targetClass, elapsed, budget);
+        StackTraceElement[] sampledStack = mSampledStack;
+        if (sampledStack != null && sampledStack.length > 0) {
+            e.setStackTrace(sampledStack);
+        }
+        if (Fragmentation.getDefault().getHandler() != null) {
+            Fragmentation.getDefault().getHandler().onException(e);
+        }
+    }
+}
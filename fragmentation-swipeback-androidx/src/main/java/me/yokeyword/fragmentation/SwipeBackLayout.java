@@ -128,6 +128,10 @@ public class SwipeBackLayout extends FrameLayout {
         mHelper = ViewDragHelper.create(this, new ViewDragCallback());
         setShadow(me.yokeyword.fragmentation_swipeback.R.drawable.shadow_left, EDGE_LEFT);
         setEdgeOrientation(EDGE_LEFT);
+        if (Fragmentation.getDefault().isLowRam()) {
+            // Low-RAM profile: the previous Fragment isn't redrawn on each scroll.
+            mParallaxOffset = 0;
+        }
     }
 
     /**
@@ -470,6 +474,9 @@ public class SwipeBackLayout extends FrameLayout {
                             int index = fragmentList.indexOf(mFragment);
                             for (int i = index - 1; i >= 0; i--) {
                                 Fragment fragment = fragmentList.get(i);
+                                if (fragment instanceof ISupportFragment) {
+                                    ((ISupportFragment) fragment).getSupportDelegate().restoreLazyView();
+                                }
                                 if (fragment != null && fragment.getView() != null) {
                                     fragment.getView().setVisibility(VISIBLE);
                                     mPreFragment = fragment;
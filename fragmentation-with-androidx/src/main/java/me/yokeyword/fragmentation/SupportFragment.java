@@ -1,5 +1,6 @@
 package me.yokeyword.fragmentation;
 
+import android.animation.Animator;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
@@ -62,6 +63,11 @@ public class SupportFragment extends Fragment implements ISupportFragment {
         return mDelegate.onCreateAnimation(transit, enter, nextAnim);
     }
 
+    @Override
+    public Animator onCreateAnimator(int transit, boolean enter, int nextAnim) {
+        return mDelegate.onCreateAnimator(transit, enter, nextAnim);
+    }
+
     @Override
     public void onActivityCreated(@Nullable Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
@@ -0,0 +1,196 @@
+package me.yokeyword.fragmentation;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import androidx.fragment.app.FragmentManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Allocation regression gate of the steady-state start -> pop cycle, at stack depths 1 and 10.
+ * <p>
+ * The bytes allocated by the main thread per cycle(JVM thread allocation counter, after a warm-up) must not
+ * grow past the checked-in baseline src/test/resources/allocation-baseline.json by more than its
+ * toleranceRatio, or the build fails.
+ * <p>
+ * Only -PupdateAllocationBaseline writes the baseline, it records the values of this build. A cycle without
+ * a baseline fails the build otherwise, record it on the reference JDK and check it in.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class AllocationRegressionTest {
+    private static final int WARMUP_CYCLES = 100;
+    private static final int ROUNDS = 5;
+    private static final int CYCLES_PER_ROUND = 40;
+
+    private ActivityController<TestActivity> mController;
+
+    @Before
+    public void setUp() {
+        mController = TestActivity.launch(0);
+    }
+
+    @After
+    public void tearDown() {
+        mController.pause().stop().destroy();
+    }
+
+    @Test
+    public void startPopCycle() throws Exception {
+        com.sun.management.ThreadMXBean threadBean = getThreadBean();
+        TestFragment.Root root = mController.get().getInnermostRoot();
+
+        JSONObject baseline = readBaseline();
+        JSONObject bytesPerCycle = baseline.getJSONObject("bytesPerCycle");
+        double tolerance = baseline.getDouble("toleranceRatio");
+        boolean update = Boolean.getBoolean("fragmentation.updateAllocationBaseline");
+
+        List<String> failures = new ArrayList<>();
+        for (int stackDepth : new int[]{1, 10}) {
+            fillStack(root, stackDepth);
+            String key = "startPop@depth" + stackDepth;
+            long measured = measureStartPop(threadBean, root);
+
+            if (update) {
+                bytesPerCycle.put(key, measured);
+            } else if (!bytesPerCycle.has(key)) {
+                failures.add(key + ": no baseline(" + measured + " bytes per cycle measured), "
+                        + "run with -PupdateAllocationBaseline and check it in");
+            } else {
+                long expected = bytesPerCycle.getLong(key);
+                if (measured > expected * (1 + tolerance)) {
+                    failures.add(key + ": " + measured + " bytes per cycle, baseline " + expected);
+                }
+            }
+        }
+
+        if (update) {
+            writeBaseline(baseline);
+            System.out.println("Allocation baseline recorded, check in " + getBaselineFile());
+        }
+        if (!failures.isEmpty()) {
+            fail("Allocation regression:\n" + failures);
+        }
+    }
+
+    /**
+     * @return The median bytes allocated per start -> pop cycle.
+     */
+    private long measureStartPop(com.sun.management.ThreadMXBean threadBean, TestFragment.Root root) {
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP_CYCLES; i++) {
+            startPop(root);
+        }
+
+        long[] rounds = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < CYCLES_PER_ROUND; i++) {
+                startPop(root);
+            }
+            rounds[round] = (threadBean.getThreadAllocatedBytes(threadId) - start) / CYCLES_PER_ROUND;
+        }
+        Arrays.sort(rounds);
+        return rounds[ROUNDS / 2];
+    }
+
+    private void startPop(TestFragment.Root root) {
+        FragmentManager fm = root.getFragmentManager();
+        int count = fm.getBackStackEntryCount();
+
+        getTop(root).start(TestFragment.newInstance(TestFragment.Page.class, 0));
+        TestActivity.settle();
+        getTop(root).pop();
+        TestActivity.settle();
+
+        assertEquals(count, fm.getBackStackEntryCount());
+    }
+
+    private void fillStack(TestFragment.Root root, int stackDepth) {
+        FragmentManager fm = root.getFragmentManager();
+        for (int i = fm.getBackStackEntryCount(); i < stackDepth; i++) {
+            getTop(root).start(TestFragment.newInstance(TestFragment.Page.class, 0));
+            TestActivity.settle();
+        }
+        assertEquals(stackDepth, fm.getBackStackEntryCount());
+    }
+
+    private static SupportFragment getTop(TestFragment.Root root) {
+        ISupportFragment top = SupportHelper.getTopFragment(root.getFragmentManager());
+        return top == null ? root : (SupportFragment) top;
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assertTrue("The JVM doesn't count the thread allocations", bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assertTrue("The JVM doesn't count the thread allocations", threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        return threadBean;
+    }
+
+    private static File getBaselineFile() {
+        return new File(System.getProperty("fragmentation.allocationBaseline", "src/test/resources/allocation-baseline.json"));
+    }
+
+    private static JSONObject readBaseline() throws IOException, JSONException {
+        StringBuilder sb = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new FileReader(getBaselineFile()));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return new JSONObject(sb.toString());
+    }
+
+    private static void writeBaseline(JSONObject baseline) throws IOException, JSONException {
+        // Sorted keys, for a readable diff
+        JSONObject bytesPerCycle = baseline.getJSONObject("bytesPerCycle");
+        List<String> keys = new ArrayList<>();
+        Iterator<String> iterator = bytesPerCycle.keys();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next());
+        }
+        Collections.sort(keys);
+        JSONObject sorted = new JSONObject();
+        for (String key : keys) {
+            sorted.put(key, bytesPerCycle.getLong(key));
+        }
+        baseline.put("bytesPerCycle", sorted);
+
+        Writer writer = new FileWriter(getBaselineFile());
+        try {
+            writer.write(baseline.toString(2));
+            writer.write('\n');
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package me.yokeyword.fragmentation;
+
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import androidx.fragment.app.FragmentManager;
+import me.yokeyword.fragmentation.helper.internal.FragmentPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * The Fragment pool of {@link Fragmentation.FragmentationBuilder#fragmentPoolSize(int)}: parking, reuse,
+ * the LRU eviction and the Fragments which aren't parked.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class FragmentPoolTest {
+    private static final int POOL_SIZE = 2;
+    private static final String ARG_ID = "id";
+
+    private ActivityController<TestActivity> mController;
+    private TestFragment.Root mRoot;
+
+    @Before
+    public void setUp() {
+        Fragmentation.INSTANCE = null;
+        Fragmentation.builder()
+                .fragmentPoolSize(POOL_SIZE)
+                .lowRamProfile(Fragmentation.LOW_RAM_OFF)
+                .install();
+        mController = TestActivity.launch(0);
+        mRoot = mController.get().getInnermostRoot();
+    }
+
+    @After
+    public void tearDown() {
+        mController.pause().stop().destroy();
+        Fragmentation.INSTANCE = null;
+    }
+
+    @Test
+    public void parkAndReuse() {
+        TestFragment.ReusableA first = start(TestFragment.ReusableA.class, 1, 0);
+        View firstView = first.getView();
+        pop(first);
+
+        TestFragment.ReusableA reused = start(TestFragment.ReusableA.class, 2, 0);
+        assertSame("The parked instance isn't reused", first, reused);
+        assertSame("The kept view isn't reused", firstView, reused.getView());
+        assertEquals(2, reused.getArguments().getInt(ARG_ID));
+        assertEquals(1, reused.newBundles.size());
+        assertEquals(2, reused.newBundles.get(0).getInt(ARG_ID));
+    }
+
+    @Test
+    public void evictEldest() {
+        TestFragment.ReusableA a = startAndPop(TestFragment.ReusableA.class, 1, 0);
+        TestFragment.ReusableB b = startAndPop(TestFragment.ReusableB.class, 1, 0);
+        TestFragment.ReusableC c = startAndPop(TestFragment.ReusableC.class, 1, 0);
+
+        assertSame(b, start(TestFragment.ReusableB.class, 2, 0));
+        assertSame(c, start(TestFragment.ReusableC.class, 2, 0));
+        assertNotSame("The eldest isn't evicted", a, start(TestFragment.ReusableA.class, 2, 0));
+    }
+
+    @Test
+    public void keepStillAttached() {
+        TestFragment.KindA attached = start(TestFragment.KindA.class, 1, 0);
+        FragmentPool pool = new FragmentPool(POOL_SIZE);
+        pool.put(attached, attached.getTag());
+
+        assertNull("An attached Fragment is handed out", pool.take(TestFragment.KindA.class, attached.getTag()));
+
+        String tag = attached.getTag();
+        attached.pop();
+        TestActivity.settle();
+        assertSame("The attached Fragment is dropped from the pool", attached, pool.take(TestFragment.KindA.class, tag));
+    }
+
+    @Test
+    public void skipWithChildFragments() {
+        TestFragment.ReusableA parent = startAndPop(TestFragment.ReusableA.class, 1, 1);
+
+        TestFragment.ReusableA next = start(TestFragment.ReusableA.class, 2, 1);
+        assertNotSame("A Fragment with child Fragments is parked", parent, next);
+    }
+
+    private <T extends TestFragment> T start(Class<T> kind, int id, int nesting) {
+        T fragment = TestFragment.newInstance(kind, nesting);
+        fragment.getArguments().putInt(ARG_ID, id);
+        getTop().start(fragment);
+        TestActivity.settle();
+
+        T started = mController.get().findFragment(kind);
+        assertSame(started, SupportHelper.getTopFragment(getFragmentManager()));
+        return started;
+    }
+
+    private <T extends TestFragment> T startAndPop(Class<T> kind, int id, int nesting) {
+        T fragment = start(kind, id, nesting);
+        pop(fragment);
+        return fragment;
+    }
+
+    private void pop(TestFragment fragment) {
+        fragment.pop();
+        TestActivity.settle();
+        assertSame(mRoot, SupportHelper.getTopFragment(getFragmentManager()));
+    }
+
+    private FragmentManager getFragmentManager() {
+        return mRoot.getFragmentManager();
+    }
+
+    private SupportFragment getTop() {
+        return (SupportFragment) SupportHelper.getTopFragment(getFragmentManager());
+    }
+}
@@ -0,0 +1,124 @@
+package me.yokeyword.fragmentation;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import me.yokeyword.fragmentation.queue.Action;
+import me.yokeyword.fragmentation.queue.ActionQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The immediate mode of the ActionQueue(animations off, or {@link Fragmentation.FragmentationBuilder#immediateActions(boolean)}).
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ImmediateActionQueueTest {
+    private ActivityController<TestActivity> mController;
+
+    @Before
+    public void setUp() {
+        mController = TestActivity.launch(0);
+    }
+
+    @After
+    public void tearDown() {
+        mController.pause().stop().destroy();
+    }
+
+    /**
+     * The mode switches(e.g. the animator duration scale drops to 0) while an action is held: the held
+     * action runs once, the next one after its hold.
+     */
+    @Test
+    public void switchToImmediateWhileHeld() {
+        ShadowLooper.pauseMainLooper();
+        try {
+            ActionQueue queue = new ActionQueue(new Handler(Looper.getMainLooper()));
+            CountingAction held = new CountingAction(300);
+            queue.enqueue(held);
+            ShadowLooper.idleMainLooper();
+            assertEquals(1, held.runs);
+
+            queue.setImmediate(true);
+            CountingAction next = new CountingAction(0);
+            queue.enqueue(next);
+            assertEquals("Waits behind the held action", 0, next.runs);
+
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            assertEquals("The held action ran again", 1, held.runs);
+            assertEquals(1, next.runs);
+
+            // Drained, the immediate mode applies again
+            CountingAction last = new CountingAction(0);
+            queue.enqueue(last);
+            assertEquals(1, last.runs);
+        } finally {
+            ShadowLooper.unPauseMainLooper();
+        }
+    }
+
+    /**
+     * An action enqueued from a lifecycle callback while the FragmentManager executes its transactions
+     * runs once the FragmentManager is done, instead of executing its own transactions inside.
+     */
+    @Test
+    public void enqueueFromLifecycleCallback() {
+        TestActivity activity = mController.get();
+        activity.getSupportDelegate().getTransactionDelegate().mActionQueue.setImmediate(true);
+        final FragmentManager fm = activity.getSupportFragmentManager();
+        TestFragment.Root root = activity.getInnermostRoot();
+
+        root.start(TestFragment.newInstance(TestFragment.KindA.class, 0));
+        TestActivity.settle();
+        final TestFragment.KindA kindA = activity.findFragment(TestFragment.KindA.class);
+
+        final int[] callbackRuns = new int[1];
+        fm.registerFragmentLifecycleCallbacks(new FragmentManager.FragmentLifecycleCallbacks() {
+            @Override
+            public void onFragmentCreated(@NonNull FragmentManager fm, @NonNull Fragment f, @Nullable Bundle savedInstanceState) {
+                if (!(f instanceof ISupportFragment)) {
+                    callbackRuns[0]++;
+                    // startWithPop() executes the pending transactions itself
+                    kindA.startWithPop(TestFragment.newInstance(TestFragment.KindB.class, 0));
+                }
+            }
+        }, false);
+
+        fm.beginTransaction().add(new Fragment(), "trigger").commitNow();
+        TestActivity.settle();
+
+        assertEquals(1, callbackRuns[0]);
+        assertTrue(SupportHelper.getTopFragment(fm) instanceof TestFragment.KindB);
+        assertNull(activity.findFragment(TestFragment.KindA.class));
+    }
+
+    private static final class CountingAction extends Action {
+        int runs;
+
+        CountingAction(long duration) {
+            this.duration = duration;
+        }
+
+        @Override
+        public void run() {
+            runs++;
+        }
+    }
+}
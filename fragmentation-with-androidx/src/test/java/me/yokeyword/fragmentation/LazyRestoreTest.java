@@ -0,0 +1,127 @@
+package me.yokeyword.fragmentation;
+
+import android.os.Bundle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link Fragmentation.FragmentationBuilder#lazyRestore(boolean)}: the hidden Fragments of a restored stack
+ * have no view until they are revealed, and a revealed Fragment is support-visible with its view.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class LazyRestoreTest {
+    private ActivityController<TestActivity> mController;
+
+    @Before
+    public void setUp() {
+        Fragmentation.INSTANCE = null;
+        Fragmentation.builder()
+                .lazyRestore(true)
+                .lowRamProfile(Fragmentation.LOW_RAM_OFF)
+                .install();
+
+        // Root -> KindA -> KindB -> KindC, each one hides the previous one
+        mController = TestActivity.launch(0);
+        SupportFragment top = mController.get().getInnermostRoot();
+        for (Class<? extends TestFragment> kind : Arrays.<Class<? extends TestFragment>>asList(
+                TestFragment.KindA.class, TestFragment.KindB.class, TestFragment.KindC.class)) {
+            top.start(TestFragment.newInstance(kind, 0));
+            TestActivity.settle();
+            top = mController.get().findFragment(kind);
+        }
+        restore();
+    }
+
+    @After
+    public void tearDown() {
+        mController.pause().stop().destroy();
+        Fragmentation.INSTANCE = null;
+    }
+
+    @Test
+    public void hiddenWithoutView() {
+        TestActivity activity = mController.get();
+        assertLazy(activity.findFragment(TestFragment.Root.class));
+        assertLazy(activity.findFragment(TestFragment.KindA.class));
+        assertLazy(activity.findFragment(TestFragment.KindB.class));
+        assertRevealed(activity.findFragment(TestFragment.KindC.class));
+
+        // Not created later either
+        TestActivity.settle();
+        assertLazy(activity.findFragment(TestFragment.KindB.class));
+    }
+
+    @Test
+    public void revealByPop() {
+        TestActivity activity = mController.get();
+        activity.findFragment(TestFragment.KindC.class).pop();
+        TestActivity.settle();
+
+        assertRevealed(activity.findFragment(TestFragment.KindB.class));
+        assertLazy(activity.findFragment(TestFragment.KindA.class));
+    }
+
+    @Test
+    public void revealByShowHideFragment() {
+        TestActivity activity = mController.get();
+        TestFragment.KindC kindC = activity.findFragment(TestFragment.KindC.class);
+        TestFragment.KindB kindB = activity.findFragment(TestFragment.KindB.class);
+        activity.showHideFragment(kindB, kindC);
+        TestActivity.settle();
+
+        assertRevealed(kindB);
+        assertFalse(kindC.isSupportVisible());
+    }
+
+    @Test
+    public void revealByPopTo() {
+        TestActivity activity = mController.get();
+        activity.findFragment(TestFragment.KindC.class).popTo(TestFragment.KindA.class, false);
+        TestActivity.settle();
+
+        assertRevealed(activity.findFragment(TestFragment.KindA.class));
+        assertLazy(activity.findFragment(TestFragment.Root.class));
+    }
+
+    /**
+     * Destroys the Activity and creates a new one from its saved state, through onStart() and onResume().
+     */
+    private void restore() {
+        Bundle state = new Bundle();
+        mController.pause().stop().saveInstanceState(state).destroy();
+        mController = Robolectric.buildActivity(TestActivity.class, TestActivity.newIntent(0)).setup(state);
+    }
+
+    private static void assertLazy(TestFragment fragment) {
+        assertNotNull(fragment);
+        String name = fragment.getClass().getSimpleName();
+        assertTrue(name + " isn't held by the lazy restore", fragment.getSupportDelegate().isLazyRestored());
+        assertNull(name + " has a view", fragment.getView());
+        assertFalse(name + " is support-visible", fragment.isSupportVisible());
+    }
+
+    private static void assertRevealed(TestFragment fragment) {
+        assertNotNull(fragment);
+        String name = fragment.getClass().getSimpleName();
+        assertNotNull(name + " has no view", fragment.getView());
+        assertTrue(name + " isn't support-visible", fragment.isSupportVisible());
+        assertFalse(name + " wasn't support-visible", fragment.supportVisibleWithView.isEmpty());
+        assertEquals(name + " was support-visible without a view", -1, fragment.supportVisibleWithView.indexOf(false));
+    }
+}
@@ -0,0 +1,233 @@
+package me.yokeyword.fragmentation;
+
+import android.content.Context;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.fragment.app.FragmentManager;
+import me.yokeyword.fragmentation.anim.DefaultFadePropertyAnimator;
+import me.yokeyword.fragmentation.anim.DefaultVerticalAnimator;
+import me.yokeyword.fragmentation.helper.internal.AnimatorHelper;
+import me.yokeyword.fragmentation.helper.internal.VisibleDelegate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Benchmark of the core navigation paths: start, startWithPop, pop and popTo through the ActionQueue,
+ * the SupportHelper lookups, the VisibleDelegate dispatch and the AnimatorHelper creation, at each stack
+ * depth of the innermost stack and each nesting depth(1: the stack is in the Activity).
+ * <p>
+ * The time of an op includes running its actions, the FragmentManager transactions and the animations
+ * (DefaultNoAnimator), the holds are on the Robolectric clock. The result is written as JSON to
+ * build/reports/fragmentation/navigation-benchmark.json.
+ * <p>
+ * A quick run by default, the full one(stack depths 1..500, nesting depths 1..4) with -Pbenchmark.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class NavigationBenchmarkTest {
+    private static final int[] QUICK_STACK_DEPTHS = {1, 10};
+    private static final int[] FULL_STACK_DEPTHS = {1, 10, 100, 500};
+    private static final int[] QUICK_NESTING_DEPTHS = {1, 2};
+    private static final int[] FULL_NESTING_DEPTHS = {1, 2, 3, 4};
+    private static final int QUICK_ITERATIONS = 3;
+    private static final int FULL_ITERATIONS = 10;
+
+    @Test
+    public void benchmark() throws Exception {
+        boolean full = Boolean.getBoolean("fragmentation.benchmark");
+        int[] stackDepths = full ? FULL_STACK_DEPTHS : QUICK_STACK_DEPTHS;
+        int[] nestingDepths = full ? FULL_NESTING_DEPTHS : QUICK_NESTING_DEPTHS;
+        int iterations = full ? FULL_ITERATIONS : QUICK_ITERATIONS;
+
+        JSONArray results = new JSONArray();
+        for (int nestingDepth : nestingDepths) {
+            ActivityController<TestActivity> controller = TestActivity.launch(nestingDepth - 1);
+            TestActivity activity = controller.get();
+            TestFragment.Root root = activity.getInnermostRoot();
+            assertNotNull("The innermost root isn't loaded", root);
+
+            for (int stackDepth : stackDepths) {
+                Map<String, List<Long>> samples = new LinkedHashMap<>();
+                fillStack(root, stackDepth);
+                for (int i = 0; i < iterations; i++) {
+                    measureLookups(root, samples);
+                    measureVisibleDispatch(activity, samples);
+                    measureAnimatorHelper(activity, samples);
+                    measureNavigation(root, samples);
+                    fillStack(root, stackDepth);
+                }
+                results.put(new JSONObject()
+                        .put("nestingDepth", nestingDepth)
+                        .put("stackDepth", stackDepth)
+                        .put("ops", toJson(samples)));
+            }
+            controller.pause().stop().destroy();
+        }
+
+        JSONObject json = new JSONObject()
+                .put("iterations", iterations)
+                .put("results", results);
+        write(json, "navigation-benchmark.json");
+    }
+
+    private void fillStack(TestFragment.Root root, int stackDepth) {
+        FragmentManager fm = root.getFragmentManager();
+        for (int i = fm.getBackStackEntryCount(); i < stackDepth; i++) {
+            getTop(root).start(TestFragment.newInstance(TestFragment.Page.class, 0));
+            TestActivity.settle();
+        }
+        assertEquals(stackDepth, fm.getBackStackEntryCount());
+    }
+
+    private void measureLookups(final TestFragment.Root root, Map<String, List<Long>> samples) {
+        final FragmentManager fm = root.getFragmentManager();
+        measure(samples, "getTopFragment", new Runnable() {
+            @Override
+            public void run() {
+                SupportHelper.getTopFragment(fm);
+            }
+        });
+        measure(samples, "findFragment", new Runnable() {
+            @Override
+            public void run() {
+                SupportHelper.findFragment(fm, TestFragment.Root.class);
+            }
+        });
+        measure(samples, "getActiveFragment", new Runnable() {
+            @Override
+            public void run() {
+                SupportHelper.getActiveFragment(fm);
+            }
+        });
+    }
+
+    /**
+     * Hides and shows the top Fragment of the Activity, dispatched down to the innermost stack.
+     */
+    private void measureVisibleDispatch(TestActivity activity, Map<String, List<Long>> samples) {
+        ISupportFragment top = SupportHelper.getTopFragment(activity.getSupportFragmentManager());
+        final VisibleDelegate visibleDelegate = top.getSupportDelegate().getVisibleDelegate();
+        measure(samples, "visibleDispatch", new Runnable() {
+            @Override
+            public void run() {
+                visibleDelegate.onHiddenChanged(true);
+                visibleDelegate.onHiddenChanged(false);
+            }
+        });
+    }
+
+    private void measureAnimatorHelper(TestActivity activity, Map<String, List<Long>> samples) {
+        final Context context = activity.getApplicationContext();
+        measure(samples, "animatorHelper", new Runnable() {
+            @Override
+            public void run() {
+                new AnimatorHelper(context, new DefaultVerticalAnimator());
+            }
+        });
+        measure(samples, "animatorHelperProperty", new Runnable() {
+            @Override
+            public void run() {
+                new AnimatorHelper(context, new DefaultFadePropertyAnimator());
+            }
+        });
+    }
+
+    private void measureNavigation(final TestFragment.Root root, Map<String, List<Long>> samples) {
+        measure(samples, "start", new Runnable() {
+            @Override
+            public void run() {
+                getTop(root).start(TestFragment.newInstance(TestFragment.Page.class, 0));
+            }
+        });
+        measure(samples, "startWithPop", new Runnable() {
+            @Override
+            public void run() {
+                getTop(root).startWithPop(TestFragment.newInstance(TestFragment.Page.class, 0));
+            }
+        });
+        measure(samples, "pop", new Runnable() {
+            @Override
+            public void run() {
+                getTop(root).pop();
+            }
+        });
+        measure(samples, "popTo", new Runnable() {
+            @Override
+            public void run() {
+                getTop(root).popTo(TestFragment.Root.class, false);
+            }
+        });
+    }
+
+    private static void measure(Map<String, List<Long>> samples, String op, Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        TestActivity.settle();
+        long time = System.nanoTime() - start;
+
+        List<Long> opSamples = samples.get(op);
+        if (opSamples == null) {
+            opSamples = new ArrayList<>();
+            samples.put(op, opSamples);
+        }
+        opSamples.add(time);
+    }
+
+    private static SupportFragment getTop(TestFragment.Root root) {
+        ISupportFragment top = SupportHelper.getTopFragment(root.getFragmentManager());
+        return top == null ? root : (SupportFragment) top;
+    }
+
+    private static JSONObject toJson(Map<String, List<Long>> samples) throws JSONException {
+        JSONObject ops = new JSONObject();
+        for (Map.Entry<String, List<Long>> entry : samples.entrySet()) {
+            List<Long> opSamples = entry.getValue();
+            long[] sorted = new long[opSamples.size()];
+            long sum = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = opSamples.get(i);
+                sum += sorted[i];
+            }
+            Arrays.sort(sorted);
+            ops.put(entry.getKey(), new JSONObject()
+                    .put("count", sorted.length)
+                    .put("meanMicros", sum / sorted.length / 1000)
+                    .put("minMicros", sorted[0] / 1000)
+                    .put("medianMicros", sorted[sorted.length / 2] / 1000)
+                    .put("p90Micros", sorted[(int) (sorted.length * 0.9)] / 1000)
+                    .put("maxMicros", sorted[sorted.length - 1] / 1000));
+        }
+        return ops;
+    }
+
+    private static void write(JSONObject json, String fileName) throws JSONException, IOException {
+        String dir = System.getProperty("fragmentation.reportDir", "build/reports/fragmentation");
+        File file = new File(dir, fileName);
+        file.getParentFile().mkdirs();
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(json.toString(2));
+        } finally {
+            writer.close();
+        }
+    }
+}
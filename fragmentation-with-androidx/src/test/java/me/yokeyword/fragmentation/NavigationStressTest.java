@@ -0,0 +1,252 @@
+package me.yokeyword.fragmentation;
+
+import android.os.Bundle;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Fires seeded random navigation ops on the stack of the Activity: start with each launch mode,
+ * startForResult, startWithPop, startWithPopTo, popTo, popQuiet, showHideFragment, back presses, and
+ * save/restore cycles(the Activity is destroyed and created again from its saved state, as after the
+ * process was killed). After each op, once its actions and animations have run, it asserts:
+ * <ul>
+ * <li>each back stack entry matches an added Fragment, and vice versa</li>
+ * <li>exactly one Fragment of each container is support-visible</li>
+ * <li>the container doesn't keep a view of no Fragment(a leaked mock view)</li>
+ * </ul>
+ * A short run with a fixed seed by default, so a failure is reproducible. -Pstress runs the soak(20000 ops),
+ * -PstressSeed=seed takes another seed, -PstressOps=n another op count. The seed and the last ops are
+ * reported on failure.
+ * The throughput is printed in ops/sec.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class NavigationStressTest {
+    private static final int DEFAULT_OPS = 300;
+    private static final int SOAK_OPS = 20000;
+    private static final long DEFAULT_SEED = 20171229L;
+    private static final int MAX_DEPTH = 30;
+    private static final int HISTORY_SIZE = 20;
+
+    private static final int OP_START = 0;
+    private static final int OP_START_SINGLETOP = 1;
+    private static final int OP_START_SINGLETASK = 2;
+    private static final int OP_START_FOR_RESULT = 3;
+    private static final int OP_START_WITH_POP = 4;
+    private static final int OP_START_WITH_POP_TO = 5;
+    private static final int OP_POP_TO = 6;
+    private static final int OP_POP_QUIET = 7;
+    private static final int OP_SHOW_HIDE = 8;
+    private static final int OP_BACK = 9;
+    private static final int OP_SAVE_RESTORE = 10;
+    private static final int OP_COUNT = 11;
+    private static final String[] OP_NAMES = {"start", "startSingleTop", "startSingleTask", "startForResult",
+            "startWithPop", "startWithPopTo", "popTo", "popQuiet", "showHideFragment", "back", "saveRestore"};
+    // A save/restore cycle every ~100 ops
+    private static final int SAVE_RESTORE_ODDS = 100;
+
+    private static final List<Class<? extends TestFragment>> KINDS = Arrays.<Class<? extends TestFragment>>asList(
+            TestFragment.KindA.class, TestFragment.KindB.class, TestFragment.KindC.class, TestFragment.KindD.class);
+
+    private final LinkedList<String> mHistory = new LinkedList<>();
+    private ActivityController<TestActivity> mController;
+    private Random mRandom;
+
+    @Test
+    public void randomNavigation() {
+        long seed = Long.getLong("fragmentation.stressSeed", DEFAULT_SEED);
+        int ops = Integer.getInteger("fragmentation.stressOps",
+                Boolean.getBoolean("fragmentation.stress") ? SOAK_OPS : DEFAULT_OPS);
+        mRandom = new Random(seed);
+        mController = TestActivity.launch(0);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            mHistory.add(performRandomOp());
+            if (mHistory.size() > HISTORY_SIZE) {
+                mHistory.removeFirst();
+            }
+            TestActivity.settle();
+
+            String violation = checkInvariants();
+            if (violation != null) {
+                fail("seed=" + seed + ", op #" + i + ": " + violation + "\nlast ops: " + mHistory);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println("Navigation stress: seed=" + seed + ", ops=" + ops
+                + ", ops/sec=" + (ops * 1000000000L / Math.max(elapsed, 1)));
+
+        mController.pause().stop().destroy();
+    }
+
+    private String performRandomOp() {
+        TestActivity activity = mController.get();
+        List<ISupportFragment> stack = getStack(activity.getSupportFragmentManager());
+        int depth = stack.size();
+        ISupportFragment top = stack.get(depth - 1);
+
+        int op;
+        do {
+            op = mRandom.nextInt(OP_COUNT);
+        } while (!canPerform(op, depth));
+
+        TestFragment fragment = TestFragment.newInstance(KINDS.get(mRandom.nextInt(KINDS.size())), 0);
+        String desc = OP_NAMES[op];
+        switch (op) {
+            case OP_START:
+                top.getSupportDelegate().start(fragment);
+                break;
+            case OP_START_SINGLETOP:
+                top.getSupportDelegate().start(fragment, ISupportFragment.SINGLETOP);
+                break;
+            case OP_START_SINGLETASK:
+                top.getSupportDelegate().start(fragment, ISupportFragment.SINGLETASK);
+                break;
+            case OP_START_FOR_RESULT:
+                top.getSupportDelegate().startForResult(fragment, mRandom.nextInt(100));
+                break;
+            case OP_START_WITH_POP:
+                top.getSupportDelegate().startWithPop(fragment);
+                break;
+            case OP_START_WITH_POP_TO: {
+                ISupportFragment target = stack.get(mRandom.nextInt(depth));
+                boolean include = !(target instanceof TestFragment.Root) && mRandom.nextBoolean();
+                top.getSupportDelegate().startWithPopTo(fragment, target.getClass(), include);
+                desc += " " + target.getClass().getSimpleName() + (include ? " included" : "");
+                break;
+            }
+            case OP_POP_TO: {
+                ISupportFragment target = stack.get(mRandom.nextInt(depth));
+                boolean include = !(target instanceof TestFragment.Root) && mRandom.nextBoolean();
+                top.getSupportDelegate().popTo(target.getClass(), include);
+                desc += " " + target.getClass().getSimpleName() + (include ? " included" : "");
+                break;
+            }
+            case OP_POP_QUIET:
+                top.getSupportDelegate().popQuiet();
+                break;
+            case OP_SHOW_HIDE: {
+                ISupportFragment pre = stack.get(depth - 2);
+                activity.showHideFragment(pre, top);
+                activity.showHideFragment(top, pre);
+                break;
+            }
+            case OP_BACK:
+                activity.onBackPressed();
+                break;
+            case OP_SAVE_RESTORE:
+                saveRestore();
+                break;
+        }
+        if (op <= OP_START_WITH_POP) {
+            desc += " " + fragment.getClass().getSimpleName();
+        }
+        return desc + " (depth " + depth + ")";
+    }
+
+    private boolean canPerform(int op, int depth) {
+        switch (op) {
+            case OP_START:
+            case OP_START_SINGLETOP:
+            case OP_START_SINGLETASK:
+            case OP_START_FOR_RESULT:
+                return depth < MAX_DEPTH;
+            case OP_START_WITH_POP:
+            case OP_POP_QUIET:
+            case OP_SHOW_HIDE:
+            case OP_BACK:
+                // The root stays on the stack
+                return depth > 1;
+            case OP_SAVE_RESTORE:
+                return mRandom.nextInt(SAVE_RESTORE_ODDS) == 0;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Destroys the Activity and creates a new one from its saved state, without the non-config instance.
+     */
+    private void saveRestore() {
+        Bundle state = new Bundle();
+        mController.pause().stop().saveInstanceState(state).destroy();
+        mController = Robolectric.buildActivity(TestActivity.class, TestActivity.newIntent(0)).setup(state);
+    }
+
+    /**
+     * @return The violation, null if all the invariants hold.
+     */
+    private String checkInvariants() {
+        TestActivity activity = mController.get();
+        FragmentManager fm = activity.getSupportFragmentManager();
+        List<ISupportFragment> stack = getStack(fm);
+
+        int backStackCount = fm.getBackStackEntryCount();
+        if (backStackCount != stack.size()) {
+            return "Back stack has " + backStackCount + " entries, but " + stack.size() + " fragments are added";
+        }
+        for (int i = 0; i < backStackCount; i++) {
+            String name = fm.getBackStackEntryAt(i).getName();
+            Fragment fragment = fm.findFragmentByTag(name);
+            if (fragment == null || !fragment.isAdded()) {
+                return "Back stack entry " + name + " has no added fragment";
+            }
+        }
+
+        Map<Integer, Integer> visibleCounts = new HashMap<>();
+        for (ISupportFragment fragment : stack) {
+            int containerId = fragment.getSupportDelegate().mContainerId;
+            Integer count = visibleCounts.get(containerId);
+            visibleCounts.put(containerId, (count == null ? 0 : count) + (fragment.isSupportVisible() ? 1 : 0));
+        }
+        for (Map.Entry<Integer, Integer> entry : visibleCounts.entrySet()) {
+            if (entry.getValue() != 1) {
+                return entry.getValue() + " fragments of container " + Integer.toHexString(entry.getKey()) + " are support-visible";
+            }
+        }
+
+        ViewGroup container = activity.findViewById(TestActivity.CONTAINER_ID);
+        List<View> fragmentViews = new ArrayList<>();
+        for (ISupportFragment fragment : stack) {
+            fragmentViews.add(((Fragment) fragment).getView());
+        }
+        for (int i = 0; i < container.getChildCount(); i++) {
+            View child = container.getChildAt(i);
+            if (!fragmentViews.contains(child)) {
+                return "Container keeps a view of no fragment: " + child;
+            }
+        }
+        return null;
+    }
+
+    private static List<ISupportFragment> getStack(FragmentManager fm) {
+        List<ISupportFragment> stack = new ArrayList<>();
+        for (Fragment fragment : fm.getFragments()) {
+            if (fragment instanceof ISupportFragment) {
+                stack.add((ISupportFragment) fragment);
+            }
+        }
+        return stack;
+    }
+}
@@ -0,0 +1,69 @@
+package me.yokeyword.fragmentation;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.FrameLayout;
+
+import org.robolectric.Robolectric;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.shadows.ShadowLooper;
+
+import androidx.annotation.Nullable;
+import me.yokeyword.fragmentation.anim.DefaultNoAnimator;
+import me.yokeyword.fragmentation.anim.FragmentAnimator;
+
+/**
+ * The host of the Robolectric navigation tests: loads a {@link TestFragment.Root} into its container,
+ * with {@link #EXTRA_NESTING} levels of nested root Fragments below it.
+ */
+public class TestActivity extends SupportActivity {
+    static final int CONTAINER_ID = 0x00fa0001;
+    static final String EXTRA_NESTING = "nesting";
+
+    static Intent newIntent(int nesting) {
+        return new Intent().putExtra(EXTRA_NESTING, nesting);
+    }
+
+    static ActivityController<TestActivity> launch(int nesting) {
+        ActivityController<TestActivity> controller = Robolectric.buildActivity(TestActivity.class, newIntent(nesting)).setup();
+        settle();
+        return controller;
+    }
+
+    /**
+     * Runs the queued actions, the animation holds and the animations.
+     */
+    static void settle() {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        setTheme(androidx.appcompat.R.style.Theme_AppCompat_Light_NoActionBar);
+        super.onCreate(savedInstanceState);
+        FrameLayout container = new FrameLayout(this);
+        container.setId(CONTAINER_ID);
+        setContentView(container);
+
+        if (savedInstanceState == null) {
+            int nesting = getIntent().getIntExtra(EXTRA_NESTING, 0);
+            loadRootFragment(CONTAINER_ID, TestFragment.newInstance(TestFragment.Root.class, nesting));
+        }
+    }
+
+    @Override
+    public FragmentAnimator onCreateFragmentAnimator() {
+        return new DefaultNoAnimator();
+    }
+
+    /**
+     * @return The innermost root Fragment.
+     */
+    TestFragment.Root getInnermostRoot() {
+        TestFragment.Root root = findFragment(TestFragment.Root.class);
+        while (root != null && root.getNesting() > 0) {
+            root = root.findChildFragment(TestFragment.Root.class);
+        }
+        return root;
+    }
+}
@@ -0,0 +1,117 @@
+package me.yokeyword.fragmentation;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * The Fragment of the Robolectric navigation tests, one class per kind so the launch modes can find it.
+ * <p>
+ * With a nesting, its view is the container of a nested {@link Root}, which has one level less.
+ */
+public class TestFragment extends SupportFragment {
+    static final int CHILD_CONTAINER_ID = 0x00fa0002;
+    private static final String ARG_NESTING = "nesting";
+
+    static <T extends TestFragment> T newInstance(Class<T> kind, int nesting) {
+        T fragment;
+        try {
+            fragment = kind.newInstance();
+        } catch (Exception e) {
+            throw new IllegalArgumentException(kind + " can't be created", e);
+        }
+        Bundle args = new Bundle();
+        args.putInt(ARG_NESTING, nesting);
+        fragment.setArguments(args);
+        return fragment;
+    }
+
+    // Whether the view existed at each onSupportVisible()
+    final List<Boolean> supportVisibleWithView = new ArrayList<>();
+
+    int getNesting() {
+        Bundle args = getArguments();
+        return args == null ? 0 : args.getInt(ARG_NESTING);
+    }
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        // Kept by the Fragment pool
+        View preparedView = getSupportDelegate().takePreparedView();
+        if (preparedView != null) return preparedView;
+
+        FrameLayout view = new FrameLayout(inflater.getContext());
+        if (getNesting() > 0) {
+            view.setId(CHILD_CONTAINER_ID);
+        }
+        return view;
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        // Restored by the child FragmentManager otherwise
+        if (savedInstanceState == null && getNesting() > 0 && findChildFragment(Root.class) == null) {
+            loadRootFragment(CHILD_CONTAINER_ID, newInstance(Root.class, getNesting() - 1));
+        }
+    }
+
+    @Override
+    public void onSupportVisible() {
+        super.onSupportVisible();
+        supportVisibleWithView.add(getView() != null);
+    }
+
+    public static class Root extends TestFragment {
+    }
+
+    public static class Page extends TestFragment {
+    }
+
+    public static class KindA extends TestFragment {
+    }
+
+    public static class KindB extends TestFragment {
+    }
+
+    public static class KindC extends TestFragment {
+    }
+
+    public static class KindD extends TestFragment {
+    }
+
+    /**
+     * Parked in the Fragment pool when popped, records the bundles of onNewBundle().
+     */
+    public static class Reusable extends TestFragment {
+        final List<Bundle> newBundles = new ArrayList<>();
+
+        public Reusable() {
+            getSupportDelegate().setReusable(true);
+        }
+
+        @Override
+        public void onNewBundle(Bundle args) {
+            super.onNewBundle(args);
+            newBundles.add(args);
+        }
+    }
+
+    public static class ReusableA extends Reusable {
+    }
+
+    public static class ReusableB extends Reusable {
+    }
+
+    public static class ReusableC extends Reusable {
+    }
+}